@@ -0,0 +1,69 @@
+package app.config;
+
+import app.security.ClientIdentity;
+import app.utils.AuditEvent;
+import app.utils.AuditLog;
+import dk.bugelhartmann.UserDTO;
+import io.javalin.Javalin;
+import io.javalin.http.Context;
+
+import java.time.Instant;
+
+/**
+ * Feeds the AuditLog: one access event per request (route, user, status, latency), and change events
+ * that the controllers record after a successful create/update/delete.
+ * Only builds the event on the request thread; writing happens on the audit writer thread.
+ */
+public class AccessLog {
+
+    private static final String START = "accessLog.start";
+
+    private AccessLog() {
+    }
+
+    public static void register(Javalin app) {
+        app.before(ctx -> ctx.attribute(START, System.nanoTime()));
+        app.after(AccessLog::access);
+    }
+
+    public static void change(Context ctx, String action, String entity, Object entityId) {
+        AuditLog.record(AuditEvent.builder()
+                .time(Instant.now())
+                .type("change")
+                .user(username(ctx))
+                .ip(ClientIdentity.ip(ctx))
+                .action(action)
+                .entity(entity)
+                .entityId(String.valueOf(entityId))
+                .build());
+    }
+
+    private static void access(Context ctx) {
+        Long start = ctx.attribute(START);
+        AuditLog.record(AuditEvent.builder()
+                .time(Instant.now())
+                .type("access")
+                .user(username(ctx))
+                .ip(ClientIdentity.ip(ctx))
+                .method(ctx.method().name())
+                .route(route(ctx))
+                .path(ctx.path())
+                .status(ctx.statusCode())
+                .latencyMicros(start == null ? null : (System.nanoTime() - start) / 1_000)
+                .build());
+    }
+
+    // The route template (/api/v1/trips/{id}), or null when no route matched (404)
+    private static String route(Context ctx) {
+        try {
+            return ctx.endpointHandlerPath();
+        } catch (IllegalStateException e) {
+            return null;
+        }
+    }
+
+    private static String username(Context ctx) {
+        UserDTO user = ctx.attribute("user");
+        return user == null ? null : user.getUsername();
+    }
+}
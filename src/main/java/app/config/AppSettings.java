@@ -0,0 +1,178 @@
+package app.config;
+
+import lombok.Getter;
+import lombok.ToString;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+/**
+ * All settings of the application, resolved once into typed, immutable values.
+ * Each key is looked up as a system property (lower case with dots, e.g. -Ddb.pool.size), then as an
+ * environment variable (DB_POOL_SIZE), then in config.properties. config.properties is skipped when
+ * DEPLOYED is set, as before.
+ * Note that environment variables win over config.properties, so a local run picks up e.g. DB_PASSWORD
+ * from the shell before the file.
+ * get() is a plain field read, so it is fine on hot paths. reload() (POST /settings/reload, admin only)
+ * reads everything again, swaps the settings in one step and runs the registered listeners (e.g. to drop
+ * cached tokens after a key change).
+ */
+@Getter
+@ToString
+public final class AppSettings {
+
+    private static final Logger logger = LoggerFactory.getLogger(AppSettings.class);
+    private static final String PROPERTIES_FILE = "config.properties";
+    private static final List<Runnable> reloadListeners = new CopyOnWriteArrayList<>();
+    private static volatile AppSettings current;
+
+    private final boolean deployed;
+
+    // Database
+    private final String dbName;
+    private final String dbUrl;
+    private final String dbUsername;
+    @ToString.Exclude
+    private final String dbPassword;
+    private final int dbPoolSize;
+    private final Duration dbConnectionTimeout;
+
+    // Tokens
+    private final String tokenIssuer;
+    private final String tokenExpireTime; // milliseconds, as TokenSecurity expects it
+    @ToString.Exclude
+    private final String tokenSecretKey;
+
+    // Password hashing
+    private final int bcryptCost;
+    private final int bcryptThreads;
+    private final int bcryptQueueSize;
+
+    // Request handling and the packing API
+    private final ExecutionMode executionMode;
+    private final boolean rateLimitEnabled;
+    private final boolean concurrencyLimitEnabled;
+    private final int concurrencyLimitMin;
+    private final int concurrencyLimitMax;
+    private final String packingApiUrl; // null = the public packing API
+    private final String packingSnapshotPath;
+
+    // Audit log
+    private final String auditLogPath;
+    private final int auditLogMaxMb; // rotated when it would grow past this
+    private final int auditLogFiles; // rotated files kept
+
+    private AppSettings(Function<String, String> source, boolean deployed) {
+        this.deployed = deployed;
+        this.dbName = source.apply("DB_NAME");
+        this.dbUrl = deployed ? source.apply("CONNECTION_STR") : "jdbc:postgresql://localhost:5432/" + dbName;
+        this.dbUsername = source.apply("DB_USERNAME");
+        this.dbPassword = source.apply("DB_PASSWORD");
+        this.dbPoolSize = intValue(source, "DB_POOL_SIZE", 20);
+        this.dbConnectionTimeout = Duration.ofMillis(intValue(source, "DB_CONNECTION_TIMEOUT_MS", 5_000));
+        this.tokenIssuer = source.apply("ISSUER");
+        this.tokenExpireTime = source.apply("TOKEN_EXPIRE_TIME");
+        this.tokenSecretKey = source.apply("SECRET_KEY");
+        this.bcryptCost = intValue(source, "BCRYPT_COST", 10);
+        this.bcryptThreads = intValue(source, "BCRYPT_THREADS", Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+        this.bcryptQueueSize = intValue(source, "BCRYPT_QUEUE_SIZE", 64);
+        this.executionMode = executionMode(source.apply("EXECUTION_MODE"));
+        this.rateLimitEnabled = !"false".equalsIgnoreCase(source.apply("RATE_LIMIT_ENABLED"));
+        this.concurrencyLimitEnabled = !"false".equalsIgnoreCase(source.apply("CONCURRENCY_LIMIT_ENABLED"));
+        this.concurrencyLimitMin = intValue(source, "CONCURRENCY_LIMIT_MIN", 10);
+        this.concurrencyLimitMax = intValue(source, "CONCURRENCY_LIMIT_MAX", 400);
+        this.packingApiUrl = source.apply("PACKING_API_URL");
+        String packingSnapshotPath = source.apply("PACKING_SNAPSHOT_PATH");
+        this.packingSnapshotPath = packingSnapshotPath == null ? "data/packing-snapshot.jsonl" : packingSnapshotPath;
+        String auditLogPath = source.apply("AUDIT_LOG_PATH");
+        this.auditLogPath = auditLogPath == null ? "logs/audit.log" : auditLogPath;
+        this.auditLogMaxMb = intValue(source, "AUDIT_LOG_MAX_MB", 10);
+        this.auditLogFiles = intValue(source, "AUDIT_LOG_FILES", 5);
+    }
+
+    public static AppSettings get() {
+        AppSettings settings = current;
+        if (settings == null) {
+            synchronized (AppSettings.class) {
+                if (current == null) {
+                    current = load();
+                }
+                settings = current;
+            }
+        }
+        return settings;
+    }
+
+    public static AppSettings reload() {
+        AppSettings settings = load();
+        current = settings;
+        logger.info("Settings reloaded: {}", settings);
+        reloadListeners.forEach(Runnable::run);
+        return settings;
+    }
+
+    public static void onReload(Runnable listener) {
+        reloadListeners.add(listener);
+    }
+
+    private static AppSettings load() {
+        boolean deployed = lookup("DEPLOYED", null) != null;
+        Properties properties = deployed ? new Properties() : readProperties();
+        return new AppSettings(key -> lookup(key, properties), deployed);
+    }
+
+    private static String lookup(String key, Properties properties) {
+        String value = System.getProperty(key.toLowerCase().replace('_', '.'));
+        if (value == null) {
+            value = System.getenv(key);
+        }
+        if (value == null && properties != null) {
+            value = properties.getProperty(key);
+        }
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    private static Properties readProperties() {
+        Properties properties = new Properties();
+        try (InputStream is = AppSettings.class.getClassLoader().getResourceAsStream(PROPERTIES_FILE)) {
+            if (is != null) {
+                properties.load(is);
+            } else {
+                logger.warn("{} not found on the classpath", PROPERTIES_FILE);
+            }
+        } catch (IOException e) {
+            logger.warn("Could not read {}: {}", PROPERTIES_FILE, e.getMessage());
+        }
+        return properties;
+    }
+
+    private static int intValue(Function<String, String> source, String key, int defaultValue) {
+        String value = source.apply(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException(key + " must be a whole number, was: " + value);
+        }
+    }
+
+    private static ExecutionMode executionMode(String value) {
+        if (value == null) {
+            return ExecutionMode.PLATFORM;
+        }
+        try {
+            return ExecutionMode.valueOf(value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("Unknown EXECUTION_MODE: " + value + ", expected PLATFORM or VIRTUAL");
+        }
+    }
+}
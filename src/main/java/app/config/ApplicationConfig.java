@@ -1,5 +1,8 @@
 package app.config;
 
+import app.exceptions.ApiException;
+import app.security.RateLimitFilter;
+import app.security.RoutePermissions;
 import app.security.SecurityController;
 import app.services.MockPackingService;
 import app.services.TripService;
@@ -7,26 +10,47 @@ import io.javalin.Javalin;
 import io.javalin.config.JavalinConfig;
 import jakarta.persistence.EntityManagerFactory;
 
+import java.util.Map;
+
 public class ApplicationConfig {
     private static Javalin app;
+    private static ServiceRegistry services;
+    private static ExecutionMode executionMode = ExecutionMode.fromEnvironment();
+
+    public static void setExecutionMode(ExecutionMode mode) {
+        executionMode = mode;
+    }
 
     public static Javalin startServer(int port, EntityManagerFactory emf) {
-        ServiceRegistry services = new ServiceRegistry(emf);
+        services = new ServiceRegistry(emf);
         RoutesRegistry routes = new RoutesRegistry(services);
 
         app = Javalin.create(config -> configure(config, routes));
+        registerExceptionHandlers(app);
+        RequestDeadlines.register(app);
+        AccessLog.register(app);
 
+        RateLimitFilter rateLimits = AppSettings.get().isRateLimitEnabled() ? new RateLimitFilter() : null;
+        if (rateLimits != null) {
+            app.beforeMatched(rateLimits.perIp()); // before authenticate, so requests with bad tokens count too
+        }
         if (!HibernateConfig.getTest()) {
             SecurityController securityController = new SecurityController();
             app.beforeMatched(securityController.authenticate());
             app.beforeMatched(securityController.authorize());
         }
+        if (rateLimits != null) {
+            app.beforeMatched(rateLimits.perUser()); // after authenticate, so the user is known
+        }
+        if (AppSettings.get().isConcurrencyLimitEnabled()) {
+            ConcurrencyLimits.register(app); // last filter: only admitted requests hold a slot
+        }
 
         app.start(port);
         return app;
     }
     public static Javalin startServer(int port, EntityManagerFactory emf, boolean testMode) {
-        ServiceRegistry services = new ServiceRegistry(emf);
+        services = new ServiceRegistry(emf);
 
         if (testMode) {
             services.setTripService(new TripService(emf, new MockPackingService()));
@@ -34,12 +58,25 @@ public class ApplicationConfig {
 
         RoutesRegistry routes = new RoutesRegistry(services);
         app = Javalin.create(config -> configure(config, routes));
+        registerExceptionHandlers(app);
+        RequestDeadlines.register(app);
+        AccessLog.register(app);
 
+        RateLimitFilter rateLimits = AppSettings.get().isRateLimitEnabled() ? new RateLimitFilter() : null;
+        if (rateLimits != null) {
+            app.beforeMatched(rateLimits.perIp()); // before authenticate, so requests with bad tokens count too
+        }
         if (!testMode) {
             SecurityController securityController = new SecurityController();
             app.beforeMatched(securityController.authenticate());
             app.beforeMatched(securityController.authorize());
         }
+        if (rateLimits != null) {
+            app.beforeMatched(rateLimits.perUser()); // after authenticate, so the user is known
+        }
+        if (AppSettings.get().isConcurrencyLimitEnabled()) {
+            ConcurrencyLimits.register(app); // last filter: only admitted requests hold a slot
+        }
 
         app.start(port);
         return app;
@@ -48,11 +85,27 @@ public class ApplicationConfig {
 
     private static void configure(JavalinConfig config, RoutesRegistry routes) {
         config.showJavalinBanner = false;
+        if (!executionMode.isAvailable()) {
+            throw new IllegalStateException("EXECUTION_MODE=" + executionMode + " needs Java 21 or newer, running on Java "
+                    + Runtime.version().feature());
+        }
+        config.useVirtualThreads = executionMode == ExecutionMode.VIRTUAL;
+        config.jsonMapper(new CodecJsonMapper());
+        RequestDeadlines.configure(config);
+        config.events.handlerAdded(RoutePermissions::register); // role masks per route, compiled once
         config.bundledPlugins.enableRouteOverview("/routes");
         config.router.contextPath = "/api/v1";
         config.router.apiBuilder(routes.getRoutes());
     }
 
+    // Lets ApiExceptions (e.g. 400 for an unknown ?fields= name) reach the client with their own status code
+    private static void registerExceptionHandlers(Javalin app) {
+        app.exception(ApiException.class, (e, ctx) -> {
+            ctx.status(e.getStatusCode());
+            ctx.json(Map.of("status", e.getStatusCode(), "msg", e.getMessage()));
+        });
+    }
+
 /**
      * Stop server
      *
@@ -62,6 +115,7 @@ public static void stopServer() {
     if (app != null) {
         System.out.println("Stopping server and closing EMF...");
         app.stop();
+        services.close();
         if (HibernateConfig.getEntityManagerFactory().isOpen()) {
             HibernateConfig.getEntityManagerFactory().close();
         }
@@ -0,0 +1,69 @@
+package app.config;
+
+import app.utils.JsonCodec;
+import com.fasterxml.jackson.core.JsonGenerator;
+import io.javalin.json.JsonMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Type;
+import java.util.stream.Stream;
+
+/**
+ * Javalin JsonMapper backed by JsonCodec, so ctx.json() and ctx.bodyAsClass()
+ * use the shared mapper and its cached readers/writers.
+ */
+public class CodecJsonMapper implements JsonMapper {
+
+    @Override
+    public String toJsonString(Object obj, Type type) {
+        try {
+            return JsonCodec.writerFor(type).writeValueAsString(obj);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public InputStream toJsonStream(Object obj, Type type) {
+        try {
+            return new ByteArrayInputStream(JsonCodec.writerFor(type).writeValueAsBytes(obj));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void writeToOutputStream(Stream<?> stream, OutputStream outputStream) {
+        try (JsonGenerator generator = JsonCodec.mapper().getFactory().createGenerator(outputStream)) {
+            generator.writeStartArray();
+            for (Object item : (Iterable<?>) stream::iterator) {
+                JsonCodec.mapper().writeValue(generator, item);
+            }
+            generator.writeEndArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public <T> T fromJsonString(String json, Type targetType) {
+        try {
+            return JsonCodec.readerFor(targetType).readValue(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public <T> T fromJsonStream(InputStream json, Type targetType) {
+        try {
+            return JsonCodec.readerFor(targetType).readValue(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package app.config;
+
+import app.exceptions.ApiException;
+import app.security.ClientIdentity;
+import app.security.RoutePermissions;
+import app.security.Roles;
+import app.utils.AdaptiveConcurrencyLimiter;
+import app.utils.AdaptiveConcurrencyLimiter.Priority;
+import app.utils.Metrics;
+import io.javalin.Javalin;
+import io.javalin.http.Context;
+import io.javalin.http.HandlerType;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Puts an AdaptiveConcurrencyLimiter in front of the route handlers. A request that does not fit under
+ * the current limit for its priority gets 503 with Retry-After at once, instead of waiting in Jetty's queue
+ * while Postgres or the packing API is slow.
+ * Priority per route: health check, login and metrics are CRITICAL; analytics, bulk provisioning and
+ * writes that need ADMIN are LOW; everything else (reads, user requests) is NORMAL.
+ * /batch itself holds no slot, it only waits: each of its sub-requests takes its own slot, as LOW.
+ */
+public class ConcurrencyLimits {
+
+    private static final String ATTRIBUTE = "concurrency.start";
+    private static final String PRIORITY = "concurrency.priority";
+    private static final int INITIAL_LIMIT = 50;
+
+    // Route paths (without the context path) with a fixed priority
+    private static final Map<String, Priority> ROUTE_PRIORITIES = Map.of(
+            "/auth/healthcheck", Priority.CRITICAL,
+            "/auth/login", Priority.CRITICAL,
+            "/metrics", Priority.CRITICAL,
+            "/trips/guides/totalprice", Priority.LOW,
+            "/trips/packing/weights", Priority.LOW,
+            "/auth/users/bulk", Priority.LOW,
+            "/auth/populate", Priority.LOW
+    );
+
+    // Routes that only wait for other requests of this server
+    private static final Set<String> UNLIMITED_ROUTES = Set.of("/batch");
+
+    private static final AdaptiveConcurrencyLimiter LIMITER = new AdaptiveConcurrencyLimiter(INITIAL_LIMIT,
+            AppSettings.get().getConcurrencyLimitMin(), AppSettings.get().getConcurrencyLimitMax());
+
+    private static final Map<HandlerType, Map<String, Priority>> PRIORITY_CACHE = new ConcurrentHashMap<>();
+
+    static {
+        Metrics.gauge("concurrency.limit", LIMITER::getLimit);
+        Metrics.gauge("concurrency.in_flight", LIMITER::getInFlight);
+    }
+
+    private ConcurrencyLimits() {
+    }
+
+    public static void register(Javalin app) {
+        app.beforeMatched(ConcurrencyLimits::acquire);
+        app.after(ConcurrencyLimits::release);
+    }
+
+    private static void acquire(Context ctx) {
+        if (ctx.method() == HandlerType.OPTIONS) {
+            return;
+        }
+        if (UNLIMITED_ROUTES.contains(route(ctx))) {
+            return;
+        }
+        Priority priority = ClientIdentity.isBatchSubRequest(ctx) ? Priority.LOW
+                : PRIORITY_CACHE.computeIfAbsent(ctx.method(), method -> new ConcurrentHashMap<>())
+                        .computeIfAbsent(ctx.endpointHandlerPath(), path -> priorityOf(ctx));
+        if (!LIMITER.tryAcquire(priority)) {
+            Metrics.increment("concurrency.shed." + priority.name().toLowerCase());
+            ctx.header("Retry-After", "1");
+            throw new ApiException(503, "Server is busy, try again shortly");
+        }
+        ctx.attribute(PRIORITY, priority);
+        ctx.attribute(ATTRIBUTE, System.nanoTime());
+    }
+
+    // Also runs when a later filter or the handler threw, so every acquired slot is given back
+    private static void release(Context ctx) {
+        Long start = ctx.attribute(ATTRIBUTE);
+        if (start == null) {
+            return;
+        }
+        ctx.attribute(ATTRIBUTE, null);
+        LIMITER.release(ctx.attribute(PRIORITY), System.nanoTime() - start, ctx.statusCode() == 504);
+    }
+
+    private static Priority priorityOf(Context ctx) {
+        Priority fixed = ROUTE_PRIORITIES.get(route(ctx));
+        if (fixed != null) {
+            return fixed;
+        }
+        if (ctx.method() == HandlerType.GET || ctx.method() == HandlerType.HEAD) {
+            return Priority.NORMAL;
+        }
+        // Writes only an admin may do (create/update/delete of trips)
+        return RoutePermissions.requiredMask(ctx) == Roles.ADMIN.bit() ? Priority.LOW : Priority.NORMAL;
+    }
+
+    // Route path without the context path
+    private static String route(Context ctx) {
+        String path = ctx.endpointHandlerPath();
+        return path.startsWith(ctx.contextPath()) ? path.substring(ctx.contextPath().length()) : path;
+    }
+}
@@ -0,0 +1,24 @@
+package app.config;
+
+/**
+ * How Javalin runs request handlers.
+ * PLATFORM: Jetty's bounded thread pool (the default).
+ * VIRTUAL: one virtual thread per request; needs Java 21 or newer. Javalin itself would quietly fall back
+ * to platform threads on an older JDK, so the server refuses to start instead (see ApplicationConfig).
+ * Concurrency is then bounded by the DB connection pool (DB_POOL_SIZE) and the packing API bulkhead
+ * instead of the thread count.
+ * Chosen with EXECUTION_MODE (see AppSettings).
+ */
+public enum ExecutionMode {
+    PLATFORM,
+    VIRTUAL;
+
+    public static ExecutionMode fromEnvironment() {
+        return AppSettings.get().getExecutionMode();
+    }
+
+    // False for VIRTUAL on a JDK before 21
+    public boolean isAvailable() {
+        return this != VIRTUAL || Runtime.version().feature() >= 21;
+    }
+}
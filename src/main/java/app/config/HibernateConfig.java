@@ -4,7 +4,6 @@ import app.entities.Guide;
 import app.entities.Role;
 import app.entities.Trip;
 import app.entities.User;
-import app.utils.Utils;
 import jakarta.persistence.EntityManagerFactory;
 import org.hibernate.SessionFactory;
 import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
@@ -57,10 +56,8 @@ public class HibernateConfig {
             setBaseProperties(props);
             if (forTest) {
                 props = setTestProperties(props);
-            } else if (System.getenv("DEPLOYED") != null) {
-                setDeployedProperties(props);
             } else {
-                props = setDevProperties(props);
+                props = setDatabaseProperties(props);
             }
             configuration.setProperties(props);
             getAnnotationConfiguration(configuration);
@@ -84,24 +81,24 @@ public class HibernateConfig {
         props.put("hibernate.show_sql", "false");
         props.put("hibernate.format_sql", "false");
         props.put("hibernate.use_sql_comments", "false");
+        // JDBC batching, so bulk provisioning sends its user and user_roles inserts in groups
+        props.put("hibernate.jdbc.batch_size", "50");
+        props.put("hibernate.order_inserts", "true");
+        // HikariCP instead of Hibernate's built-in pool. The pool size is what bounds concurrent DB work,
+        // also when requests run on virtual threads; a request waits at most connectionTimeout for a connection
+        props.put("hibernate.connection.provider_class", "org.hibernate.hikaricp.internal.HikariCPConnectionProvider");
+        props.put("hibernate.hikari.maximumPoolSize", String.valueOf(AppSettings.get().getDbPoolSize()));
+        props.put("hibernate.hikari.minimumIdle", "2");
+        props.put("hibernate.hikari.connectionTimeout", String.valueOf(AppSettings.get().getDbConnectionTimeout().toMillis()));
         return props;
     }
 
-    private static Properties setDeployedProperties(Properties props) {
-        String DBName = System.getenv("DB_NAME");
-        props.setProperty("hibernate.connection.url", System.getenv("CONNECTION_STR"));
-        props.setProperty("hibernate.connection.username", System.getenv("DB_USERNAME"));
-        props.setProperty("hibernate.connection.password", System.getenv("DB_PASSWORD"));
-        return props;
-    }
-
-    private static Properties setDevProperties(Properties props) {
-        String DBName = Utils.getPropertyValue("DB_NAME", "config.properties");
-        String DB_USERNAME = Utils.getPropertyValue("DB_USERNAME", "config.properties");
-        String DB_PASSWORD = Utils.getPropertyValue("DB_PASSWORD", "config.properties");
-        props.put("hibernate.connection.url", "jdbc:postgresql://localhost:5432/" + DBName);
-        props.put("hibernate.connection.username", DB_USERNAME);
-        props.put("hibernate.connection.password", DB_PASSWORD);
+    // Same keys locally (config.properties) and deployed (environment), see AppSettings
+    private static Properties setDatabaseProperties(Properties props) {
+        AppSettings settings = AppSettings.get();
+        props.put("hibernate.connection.url", settings.getDbUrl());
+        props.put("hibernate.connection.username", settings.getDbUsername());
+        props.put("hibernate.connection.password", settings.getDbPassword());
         return props;
     }
 
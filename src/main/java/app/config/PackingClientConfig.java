@@ -0,0 +1,88 @@
+package app.config;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Settings for the HttpClient that calls the external packing API.
+ * The defaults are used unless something else is passed to PackingService.
+ * The base URL can be overridden with PACKING_API_URL (see AppSettings), e.g. to point the app at a local stub,
+ * and the snapshot file with PACKING_SNAPSHOT_PATH.
+ */
+@Getter
+@ToString
+@Builder(toBuilder = true)
+public class PackingClientConfig {
+    @Builder.Default
+    private final String baseUrl = "https://packingapi.cphbusinessapps.dk/packinglist/";
+
+    // Timeouts
+    @Builder.Default
+    private final Duration connectTimeout = Duration.ofSeconds(2);
+    @Builder.Default
+    private final Duration requestTimeout = Duration.ofSeconds(5);
+
+    // HTTP/2 with gzip. The connection is reused by the HttpClient; ioThreads is the size of its dedicated executor
+    @Builder.Default
+    private final boolean http2 = true;
+    @Builder.Default
+    private final boolean gzip = true;
+    @Builder.Default
+    private final int ioThreads = 4;
+    // Don't parse buyingOptions (the list is then null in our responses)
+    @Builder.Default
+    private final boolean skipBuyingOptions = false;
+
+    // Bulkhead: max upstream calls in flight at once
+    @Builder.Default
+    private final int maxConcurrentCalls = 16;
+
+    // Circuit breaker
+    @Builder.Default
+    private final double failureRateThreshold = 0.5;
+    @Builder.Default
+    private final int circuitWindowSize = 20;
+    @Builder.Default
+    private final int circuitMinimumCalls = 10;
+    @Builder.Default
+    private final Duration circuitOpenDuration = Duration.ofSeconds(30);
+    @Builder.Default
+    private final int circuitHalfOpenCalls = 3;
+
+    // Hedging: if a call has not answered after the given percentile of recent latencies,
+    // a second call is sent and the first answer wins. At most maxHedgeRatio of calls are hedged
+    @Builder.Default
+    private final boolean hedgingEnabled = false;
+    @Builder.Default
+    private final double hedgePercentile = 0.95;
+    @Builder.Default
+    private final Duration hedgeDelayWithoutSamples = Duration.ofSeconds(1);
+    @Builder.Default
+    private final Duration minHedgeDelay = Duration.ofMillis(20);
+    @Builder.Default
+    private final double maxHedgeRatio = 0.1;
+
+    // Last good packing lists are kept in this file (null = no snapshot)
+    @Builder.Default
+    private final Path snapshotPath = null;
+
+    public static PackingClientConfig defaults() {
+        return PackingClientConfig.builder().build();
+    }
+
+    // Builder with the base URL (if set) and the snapshot file taken from the settings
+    public static PackingClientConfigBuilder fromEnvironment() {
+        AppSettings settings = AppSettings.get();
+        PackingClientConfigBuilder builder = PackingClientConfig.builder()
+                .snapshotPath(Path.of(settings.getPackingSnapshotPath()));
+        String baseUrl = settings.getPackingApiUrl();
+        if (baseUrl != null) {
+            builder.baseUrl(baseUrl.endsWith("/") ? baseUrl : baseUrl + "/");
+        }
+        return builder;
+    }
+}
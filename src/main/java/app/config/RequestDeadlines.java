@@ -0,0 +1,98 @@
+package app.config;
+
+import app.exceptions.ApiException;
+import app.utils.Deadline;
+import io.javalin.Javalin;
+import io.javalin.config.JavalinConfig;
+import io.javalin.http.Context;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import org.eclipse.jetty.servlet.FilterHolder;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.Map;
+
+/**
+ * Gives every request a deadline before its handler runs.
+ * The budget comes from the X-Request-Timeout header (milliseconds), else from the route default, else DEFAULT.
+ * It is capped at MAX. The deadline is put in Deadline's ThreadLocal and in the "deadline" ctx attribute,
+ * and is used for JPA query timeouts, packing API timeouts and the async endpoints (504 when it runs out).
+ * The ThreadLocal is cleared by a servlet filter on the Jetty thread that set it, once the before-handlers
+ * and the handler have run. An after-handler would not do: for ctx.future() handlers it runs on the thread
+ * that completed the future.
+ */
+public class RequestDeadlines {
+
+    public static final String HEADER = "X-Request-Timeout";
+    public static final String ATTRIBUTE = "deadline";
+
+    private static final Duration DEFAULT = Duration.ofSeconds(10);
+    private static final Duration MAX = Duration.ofSeconds(30);
+
+    // Route path (without the context path) -> default budget
+    private static final Map<String, Duration> ROUTE_DEFAULTS = Map.of(
+            "/trips/{id}/packing", Duration.ofSeconds(8),
+            "/trips/{id}/packing/weight", Duration.ofSeconds(8),
+            "/trips/packing/weights", Duration.ofSeconds(15),
+            "/batch", Duration.ofSeconds(20),
+            "/auth/users/bulk", Duration.ofSeconds(30)
+    );
+
+    private RequestDeadlines() {
+    }
+
+    // Both are needed: configure() when the app is created, register() after
+    public static void configure(JavalinConfig config) {
+        config.jetty.modifyServletContextHandler(handler -> handler.addFilter(
+                new FilterHolder(RequestDeadlines::clearAfter), "/*", EnumSet.of(DispatcherType.REQUEST)));
+    }
+
+    public static void register(Javalin app) {
+        app.beforeMatched(RequestDeadlines::start);
+    }
+
+    public static Deadline of(Context ctx) {
+        return ctx.attribute(ATTRIBUTE);
+    }
+
+    private static void start(Context ctx) {
+        Deadline deadline = Deadline.after(budget(ctx));
+        ctx.attribute(ATTRIBUTE, deadline);
+        Deadline.set(deadline);
+    }
+
+    private static void clearAfter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            Deadline.clear();
+        }
+    }
+
+    private static Duration budget(Context ctx) {
+        String header = ctx.header(HEADER);
+        if (header != null) {
+            try {
+                long millis = Long.parseLong(header.trim());
+                if (millis <= 0) {
+                    throw new ApiException(400, HEADER + " must be a positive number of milliseconds");
+                }
+                Duration requested = Duration.ofMillis(millis);
+                return requested.compareTo(MAX) > 0 ? MAX : requested;
+            } catch (NumberFormatException e) {
+                throw new ApiException(400, "Invalid " + HEADER + ": " + header);
+            }
+        }
+        String path = ctx.endpointHandlerPath();
+        if (path.startsWith(ctx.contextPath())) {
+            path = path.substring(ctx.contextPath().length());
+        }
+        return ROUTE_DEFAULTS.getOrDefault(path, DEFAULT);
+    }
+}
@@ -1,6 +1,9 @@
 package app.config;
 
+import app.routes.BatchRoutes;
 import app.routes.GuideRoutes;
+import app.routes.MetricsRoutes;
+import app.routes.SettingsRoutes;
 import app.routes.TripRoutes;
 import app.security.SecurityRoutes;
 import io.javalin.apibuilder.EndpointGroup;
@@ -10,17 +13,26 @@ public class RoutesRegistry {
     private final GuideRoutes guideRoutes;
     private final TripRoutes tripRoutes;
     private final SecurityRoutes securityRoutes;
+    private final BatchRoutes batchRoutes;
+    private final MetricsRoutes metricsRoutes;
+    private final SettingsRoutes settingsRoutes;
 
     public RoutesRegistry(ServiceRegistry services) {
         this.guideRoutes = new GuideRoutes(services.guideService);
         this.tripRoutes = new TripRoutes(services.tripService);
         this.securityRoutes = new SecurityRoutes();
+        this.batchRoutes = new BatchRoutes();
+        this.metricsRoutes = new MetricsRoutes();
+        this.settingsRoutes = new SettingsRoutes();
     }
 
     public EndpointGroup getRoutes() {
         return () -> {
             guideRoutes.getRoutes().addEndpoints();
             tripRoutes.getRoutes().addEndpoints();
+            batchRoutes.getRoutes().addEndpoints();
+            metricsRoutes.getRoutes().addEndpoints();
+            settingsRoutes.getRoutes().addEndpoints();
             securityRoutes.getSecurityRoutes().addEndpoints();
             SecurityRoutes.getSecuredRoutes().addEndpoints();
 
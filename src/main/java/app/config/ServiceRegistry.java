@@ -1,6 +1,7 @@
 package app.config;
 
 import app.services.GuideService;
+import app.services.PackingService;
 import app.services.TripService;
 import jakarta.persistence.EntityManagerFactory;
 
@@ -11,9 +12,15 @@ public class ServiceRegistry {
 
     public ServiceRegistry(EntityManagerFactory emf) {
         this.guideService = new GuideService(emf);
-        this.tripService = new TripService(emf);
+        this.tripService = new TripService(emf, new PackingService(PackingClientConfig.fromEnvironment().build()));
     }
     public void setTripService(TripService tripService) {
+        this.tripService.close();
         this.tripService = tripService;
     }
+
+    // Stops the services' own thread pools
+    public void close() {
+        tripService.close();
+    }
 }
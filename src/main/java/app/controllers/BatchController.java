@@ -0,0 +1,120 @@
+package app.controllers;
+
+import app.config.RequestDeadlines;
+import app.dtos.BatchRequestDTO;
+import app.dtos.BatchResponseDTO;
+import app.exceptions.ApiException;
+import app.security.ClientIdentity;
+import app.utils.Deadline;
+import app.utils.JsonCodec;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.TextNode;
+import io.javalin.http.Context;
+import io.javalin.http.Handler;
+import io.javalin.http.HttpStatus;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+/**
+ * POST /batch - runs many API calls in one HTTP round-trip.
+ * Every sub-request is sent concurrently to this server over loopback with the caller's
+ * Authorization header, so the normal authenticate/authorize filters apply to each of them.
+ * The caller's IP goes along via ClientIdentity, so rate limits, load shedding and the audit log
+ * see the real client and not 127.0.0.1.
+ */
+public class BatchController {
+    public static final int MAX_SUB_REQUESTS = 20;
+    private static final Set<String> ALLOWED_METHODS = Set.of("GET", "POST", "PUT", "DELETE");
+    private static final List<String> ALLOWED_PATH_PREFIXES = List.of("/trips", "/guides");
+    private static final Duration SUB_REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final ObjectMapper objectMapper = JsonCodec.mapper();
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(2))
+            .build();
+
+    public Handler executeBatch() {
+        return (Context ctx) -> {
+            List<BatchRequestDTO> requests = Arrays.asList(ctx.bodyAsClass(BatchRequestDTO[].class));
+            if (requests.isEmpty() || requests.size() > MAX_SUB_REQUESTS) {
+                throw new ApiException(400, "A batch must contain between 1 and " + MAX_SUB_REQUESTS + " requests");
+            }
+            requests.forEach(BatchController::validate);
+
+            String baseUrl = "http://localhost:" + ctx.req().getLocalPort() + ctx.contextPath();
+            String authorization = ctx.header("Authorization");
+
+            List<CompletableFuture<BatchResponseDTO>> futures = requests.stream()
+                    .map(request -> send(ctx, baseUrl, authorization, request))
+                    .collect(Collectors.toList());
+
+            ctx.future(() -> CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                    .thenAccept(ignored -> ctx.status(HttpStatus.OK).json(futures.stream()
+                            .map(CompletableFuture::join)
+                            .collect(Collectors.toList()))));
+        };
+    }
+
+    private static void validate(BatchRequestDTO request) {
+        if (request.getMethod() == null || !ALLOWED_METHODS.contains(request.getMethod().toUpperCase())) {
+            throw new ApiException(400, "Unsupported method in batch: " + request.getMethod());
+        }
+        String path = request.getPath();
+        if (path == null || path.contains("..") || ALLOWED_PATH_PREFIXES.stream().noneMatch(prefix ->
+                path.equals(prefix) || path.startsWith(prefix + "/") || path.startsWith(prefix + "?"))) {
+            throw new ApiException(400, "Path is not allowed in a batch: " + path);
+        }
+        try {
+            URI.create(path);
+        } catch (IllegalArgumentException e) {
+            throw new ApiException(400, "Invalid path in batch: " + path);
+        }
+    }
+
+    private CompletableFuture<BatchResponseDTO> send(Context ctx, String baseUrl, String authorization, BatchRequestDTO request) {
+        HttpRequest.BodyPublisher body = request.getBody() == null
+                ? HttpRequest.BodyPublishers.noBody()
+                : HttpRequest.BodyPublishers.ofString(request.getBody().toString());
+
+        // Sub-requests get what is left of the batch's own deadline
+        Duration timeout = Deadline.cap(SUB_REQUEST_TIMEOUT);
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
+                .uri(URI.create(baseUrl + request.getPath()))
+                .timeout(timeout)
+                .header(RequestDeadlines.HEADER, String.valueOf(Math.max(1, timeout.toMillis())))
+                .header("Content-Type", "application/json")
+                .method(request.getMethod().toUpperCase(), body);
+        if (authorization != null) {
+            builder.header("Authorization", authorization);
+        }
+        ClientIdentity.forward(ctx, builder);
+
+        return client.sendAsync(builder.build(), HttpResponse.BodyHandlers.ofString())
+                .thenApply(response -> new BatchResponseDTO(request.getId(), response.statusCode(), toJson(response.body())))
+                .exceptionally(e -> new BatchResponseDTO(request.getId(), HttpStatus.BAD_GATEWAY.getCode(),
+                        TextNode.valueOf("Sub-request failed: " + e.getMessage())));
+    }
+
+    // Sub-responses are embedded as JSON when possible, otherwise as a plain string
+    private JsonNode toJson(String body) {
+        if (body == null || body.isBlank()) {
+            return null;
+        }
+        try {
+            return objectMapper.readTree(body);
+        } catch (Exception e) {
+            return TextNode.valueOf(body);
+        }
+    }
+}
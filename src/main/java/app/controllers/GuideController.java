@@ -1,8 +1,13 @@
 package app.controllers;
 
+import app.config.AccessLog;
+import app.daos.GuideDAO;
 import app.dtos.GuideDTO;
+import app.dtos.MultiGetDTO;
 import app.mappers.GuideMapper;
 import app.services.GuideService;
+import app.utils.FieldSelection;
+import app.utils.IdList;
 import io.javalin.http.Context;
 import io.javalin.http.Handler;
 import io.javalin.http.HttpStatus;
@@ -21,6 +26,7 @@ public class GuideController implements IController {
         return (Context ctx) -> {
             GuideDTO guideDTO = ctx.bodyAsClass(GuideDTO.class);
             GuideDTO newGuideDTO = guideService.createGuide(guideDTO);
+            AccessLog.change(ctx, "CREATE", "Guide", newGuideDTO.getId());
             ctx.status(HttpStatus.CREATED).json(newGuideDTO);
         };
     }
@@ -29,6 +35,11 @@ public class GuideController implements IController {
     public Handler getById() {
         return (Context ctx) -> {
             int id = Integer.parseInt(ctx.pathParam("id"));
+            List<String> fields = requestedFields(ctx);
+            if (fields != null) {
+                ctx.status(HttpStatus.OK).json(guideService.getById(id, fields));
+                return;
+            }
             GuideDTO guideDTO = guideService.getById(id);
             ctx.status(HttpStatus.OK).json(guideDTO);
         };
@@ -37,6 +48,11 @@ public class GuideController implements IController {
     @Override
     public Handler getAll() {
         return (Context ctx) -> {
+            List<String> fields = requestedFields(ctx);
+            if (fields != null) {
+                ctx.status(HttpStatus.OK).json(guideService.getAll(fields));
+                return;
+            }
             List<GuideDTO> guideDTOs = guideService.getAll();
             ctx.status(HttpStatus.OK).json(guideDTOs);
         };
@@ -48,6 +64,7 @@ public class GuideController implements IController {
             int id = Integer.parseInt(ctx.pathParam("id"));
             GuideDTO existing = ctx.bodyAsClass(GuideDTO.class);
             GuideDTO updatedDTO = guideService.update(existing, id);
+            AccessLog.change(ctx, "UPDATE", "Guide", id);
             ctx.status(HttpStatus.OK).json(updatedDTO);
         };
     }
@@ -57,7 +74,22 @@ public class GuideController implements IController {
         return (Context ctx) -> {
             int id = Integer.parseInt(ctx.pathParam("id"));
             guideService.delete(id);
+            AccessLog.change(ctx, "DELETE", "Guide", id);
             ctx.status(HttpStatus.NO_CONTENT);
         };
     }
+
+    // GET ?ids=1,2,3 - fetches all ids in one round-trip
+    public Handler getByIds() {
+        return (Context ctx) -> {
+            List<Integer> ids = IdList.parse(ctx.queryParam("ids"));
+            MultiGetDTO<GuideDTO> result = guideService.getByIds(ids);
+            ctx.status(HttpStatus.OK).json(result);
+        };
+    }
+
+    // ?fields=id,name limits both the query and the response to those fields
+    private static List<String> requestedFields(Context ctx) {
+        return FieldSelection.parse(ctx.queryParam("fields"), GuideDAO.PROJECTABLE_FIELDS.keySet());
+    }
 }
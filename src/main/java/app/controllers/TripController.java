@@ -1,8 +1,14 @@
 package app.controllers;
 
+import app.config.AccessLog;
+import app.daos.TripDAO;
+import app.dtos.MultiGetDTO;
+import app.dtos.PackingWeightsRequestDTO;
 import app.dtos.TripDTO;
 import app.exceptions.ApiException;
 import app.services.TripService;
+import app.utils.FieldSelection;
+import app.utils.IdList;
 import io.javalin.http.Context;
 import io.javalin.http.Handler;
 import io.javalin.http.HttpStatus;
@@ -21,6 +27,7 @@ public class TripController implements IController{
         return (Context ctx) -> {
             TripDTO tripDTO = ctx.bodyAsClass(TripDTO.class);
             TripDTO newTripDTO = tripService.create(tripDTO);
+            AccessLog.change(ctx, "CREATE", "Trip", newTripDTO.getId());
             ctx.status(HttpStatus.CREATED).json(newTripDTO);
         };
     }
@@ -29,6 +36,11 @@ public class TripController implements IController{
     public Handler getById() {
         return (Context ctx) -> {
             int id = Integer.parseInt(ctx.pathParam("id"));
+            List<String> fields = requestedFields(ctx);
+            if (fields != null) {
+                ctx.status(HttpStatus.OK).json(tripService.getById(id, fields));
+                return;
+            }
             TripDTO tripDTO = tripService.getById(id);
             ctx.status(HttpStatus.OK).json(tripDTO);
         };
@@ -37,6 +49,11 @@ public class TripController implements IController{
     @Override
     public Handler getAll() {
         return (Context ctx) -> {
+            List<String> fields = requestedFields(ctx);
+            if (fields != null) {
+                ctx.status(HttpStatus.OK).json(tripService.getAll(fields));
+                return;
+            }
             List<TripDTO> tripDTOs = tripService.getAll();
             ctx.status(HttpStatus.OK).json(tripDTOs);
         };
@@ -48,6 +65,7 @@ public class TripController implements IController{
             int id = Integer.parseInt(ctx.pathParam("id"));
             TripDTO existing = ctx.bodyAsClass(TripDTO.class);
             TripDTO updatedDTO = tripService.update(existing, id);
+            AccessLog.change(ctx, "UPDATE", "Trip", id);
             //Could also use NO_CONTENT, but if so, remove the body(the .json)
             ctx.status(HttpStatus.OK).json(updatedDTO);
         };
@@ -58,6 +76,7 @@ public class TripController implements IController{
         return (Context ctx) -> {
             int id = Integer.parseInt(ctx.pathParam("id"));
             tripService.delete(id);
+            AccessLog.change(ctx, "DELETE", "Trip", id);
             //No body since we use NO_CONTENT
             ctx.status(HttpStatus.NO_CONTENT);
         };
@@ -68,6 +87,7 @@ public class TripController implements IController{
             int tripId = Integer.parseInt(ctx.pathParam("tripId"));
             int guideId = Integer.parseInt(ctx.pathParam("guideId"));
             TripDTO updatedTrip = tripService.linkGuideToTrip(tripId, guideId);
+            AccessLog.change(ctx, "LINK_GUIDE " + guideId, "Trip", tripId);
             ctx.status(HttpStatus.OK).json(updatedTrip);
         };
     }
@@ -77,6 +97,11 @@ public class TripController implements IController{
             if (category == null || category.isBlank()) {
                 throw new ApiException(400, "Category query parameter is required");
             }
+            List<String> fields = requestedFields(ctx);
+            if (fields != null) {
+                ctx.status(HttpStatus.OK).json(tripService.filterTripsByCategory(category, fields));
+                return;
+            }
             List<TripDTO> tripDTOs = tripService.filterTripsByCategory(category);
             ctx.status(HttpStatus.OK).json(tripDTOs);
         };
@@ -88,19 +113,44 @@ public class TripController implements IController{
         };
     }
     //FOR FETCHING EXTERNAL API
+    //Async: the request thread is released while we wait on the packing API
     public Handler getTripWithPacking() {
         return ctx -> {
             int id = Integer.parseInt(ctx.pathParam("id"));
-            TripDTO tripDTO = tripService.getByIdWithPacking(id);
-            ctx.status(HttpStatus.OK).json(tripDTO);
+            ctx.future(() -> tripService.getByIdWithPackingAsync(id)
+                    .thenAccept(tripDTO -> ctx.status(HttpStatus.OK).json(tripDTO)));
         };
     }
 
     public Handler getTotalPackingWeight() {
         return ctx -> {
             int id = Integer.parseInt(ctx.pathParam("id"));
-            int totalWeight = tripService.getTotalPackingWeight(id);
-            ctx.status(HttpStatus.OK).json(totalWeight);
+            ctx.future(() -> tripService.getTotalPackingWeightAsync(id)
+                    .thenAccept(totalWeight -> ctx.status(HttpStatus.OK).json(totalWeight)));
+        };
+    }
+
+    // POST /trips/packing/weights { "tripIds": [1, 2, 3] } - packing weight for a whole basket
+    public Handler getPackingWeights() {
+        return ctx -> {
+            PackingWeightsRequestDTO request = ctx.bodyAsClass(PackingWeightsRequestDTO.class);
+            List<Integer> tripIds = IdList.of(request.getTripIds());
+            ctx.future(() -> tripService.getPackingWeightsAsync(tripIds)
+                    .thenAccept(weights -> ctx.status(HttpStatus.OK).json(weights)));
         };
     }
+
+    // GET ?ids=1,2,3 - fetches all ids in one round-trip
+    public Handler getByIds() {
+        return (Context ctx) -> {
+            List<Integer> ids = IdList.parse(ctx.queryParam("ids"));
+            MultiGetDTO<TripDTO> result = tripService.getByIds(ids);
+            ctx.status(HttpStatus.OK).json(result);
+        };
+    }
+
+    // ?fields=id,name,price limits both the query and the response to those fields
+    private static List<String> requestedFields(Context ctx) {
+        return FieldSelection.parse(ctx.queryParam("fields"), TripDAO.PROJECTABLE_FIELDS.keySet());
+    }
 }
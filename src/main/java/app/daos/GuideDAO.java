@@ -2,12 +2,32 @@ package app.daos;
 
 import app.entities.Guide;
 import app.exceptions.ApiException;
+import app.utils.Deadline;
+import app.utils.IdList;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.QueryTimeoutException;
+import jakarta.persistence.Tuple;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 public class GuideDAO implements IDAO<Guide,Integer> {
+    // GuideDTO field name -> JPQL path, used for sparse fieldsets (?fields=)
+    public static final Map<String, String> PROJECTABLE_FIELDS = new LinkedHashMap<>();
+    static {
+        PROJECTABLE_FIELDS.put("id", "g.id");
+        PROJECTABLE_FIELDS.put("name", "g.name");
+        PROJECTABLE_FIELDS.put("email", "g.email");
+        PROJECTABLE_FIELDS.put("phoneNumber", "g.phoneNumber");
+        PROJECTABLE_FIELDS.put("yearsOfExperience", "g.yearsOfExperience");
+    }
+
+    private static final int IN_CHUNK_SIZE = 500;
+
     private final EntityManagerFactory emf;
 
     public GuideDAO(EntityManagerFactory emf) {
@@ -41,12 +61,73 @@ public class GuideDAO implements IDAO<Guide,Integer> {
     @Override
     public List<Guide> getAll() {
         try(EntityManager em = emf.createEntityManager()){
-            return em.createQuery("select g from Guide g",
-                    Guide.class)
+            return Deadline.withTimeout(em.createQuery("select g from Guide g",
+                    Guide.class))
                     .getResultList();
+        }catch(QueryTimeoutException ex){
+            throw Deadline.exceeded();
         }
     }
 
+    // Loads many guides with one IN query per chunk, all on the same EntityManager. Order is not guaranteed
+    public List<Guide> getByIds(List<Integer> ids) {
+        try(EntityManager em = emf.createEntityManager()){
+            List<Guide> guides = new ArrayList<>(ids.size());
+            for (List<Integer> chunk : IdList.chunk(ids, IN_CHUNK_SIZE)) {
+                guides.addAll(Deadline.withTimeout(em.createQuery("select g from Guide g where g.id in :ids", Guide.class))
+                        .setParameter("ids", chunk)
+                        .getResultList());
+            }
+            return guides;
+        }catch(ApiException ex){
+            throw ex;
+        }catch(QueryTimeoutException ex){
+            throw Deadline.exceeded();
+        }catch(Exception ex){
+            throw new ApiException(500, "Error Getting Guides: " + ex.getMessage());
+        }
+    }
+
+    public List<Tuple> getAllProjected(List<String> fields) {
+        try(EntityManager em = emf.createEntityManager()){
+            return Deadline.withTimeout(em.createQuery("SELECT " + selectClause(fields) + " FROM Guide g ORDER BY g.id ASC",
+                    Tuple.class))
+                    .getResultList();
+        }catch(ApiException ex){
+            throw ex;
+        }catch(QueryTimeoutException ex){
+            throw Deadline.exceeded();
+        }catch(Exception ex){
+            throw new ApiException(500, "Error Getting Guides: " + ex.getMessage());
+        }
+    }
+
+    public Tuple getByIdProjected(int id, List<String> fields) {
+        try(EntityManager em = emf.createEntityManager()){
+            List<Tuple> result = Deadline.withTimeout(em.createQuery("SELECT " + selectClause(fields) + " FROM Guide g WHERE g.id = :id",
+                    Tuple.class))
+                    .setParameter("id", id)
+                    .getResultList();
+            if (result.isEmpty()) {
+                throw new ApiException(404, "Guide Not Found: " + id);
+            }
+            return result.get(0);
+        }catch(ApiException ex){
+            throw ex;
+        }catch(QueryTimeoutException ex){
+            throw Deadline.exceeded();
+        }catch(Exception ex){
+            throw new ApiException(500, "Error Getting Guide: " + ex.getMessage());
+        }
+    }
+
+    // Field names are validated against PROJECTABLE_FIELDS before they get here, so they are safe to inline
+    private static String selectClause(List<String> fields) {
+        return fields.stream()
+                .map(field -> PROJECTABLE_FIELDS.get(field) + " AS " + field)
+                .collect(Collectors.joining(", "));
+    }
+
     @Override
     public Guide update(int id, Guide guide) {
         try(EntityManager em = emf.createEntityManager()){
@@ -1,13 +1,40 @@
 package app.daos;
 
 import app.entities.Trip;
+import app.enums.Category;
 import app.exceptions.ApiException;
+import app.utils.Deadline;
+import app.utils.IdList;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.QueryTimeoutException;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 public class TripDAO implements IDAO<Trip,Integer> {
+    // TripDTO field name -> JPQL path, used for sparse fieldsets (?fields=)
+    public static final Map<String, String> PROJECTABLE_FIELDS = new LinkedHashMap<>();
+    static {
+        PROJECTABLE_FIELDS.put("id", "t.id");
+        PROJECTABLE_FIELDS.put("name", "t.name");
+        PROJECTABLE_FIELDS.put("startTime", "t.startTime");
+        PROJECTABLE_FIELDS.put("endTime", "t.endTime");
+        PROJECTABLE_FIELDS.put("longitude", "t.longitude");
+        PROJECTABLE_FIELDS.put("latitude", "t.latitude");
+        PROJECTABLE_FIELDS.put("price", "t.price");
+        PROJECTABLE_FIELDS.put("category", "t.category");
+        PROJECTABLE_FIELDS.put("guideId", "g.id");
+        PROJECTABLE_FIELDS.put("guideName", "g.name");
+    }
+
+    private static final int IN_CHUNK_SIZE = 500;
+
     private final EntityManagerFactory emf;
 
     public TripDAO(EntityManagerFactory emf) {
@@ -29,10 +56,14 @@ public class TripDAO implements IDAO<Trip,Integer> {
     @Override
     public Trip getById(int id) {
         try(EntityManager em = emf.createEntityManager()){
-            return em.createQuery("SELECT DISTINCT t FROM Trip t LEFT JOIN FETCH t.guide WHERE t.id = :id ",
-                    Trip.class)
+            return Deadline.withTimeout(em.createQuery("SELECT DISTINCT t FROM Trip t LEFT JOIN FETCH t.guide WHERE t.id = :id ",
+                    Trip.class))
                     .setParameter("id", id)
                     .getSingleResult();
+        }catch (ApiException ex){
+            throw ex;
+        }catch (QueryTimeoutException ex){
+            throw Deadline.exceeded();
         }catch (Exception ex){
             throw new ApiException(500, "Error Getting Trip: " + ex.getMessage());
         }
@@ -41,14 +72,123 @@ public class TripDAO implements IDAO<Trip,Integer> {
     @Override
     public List<Trip> getAll() {
         try(EntityManager em = emf.createEntityManager()){
-            return em.createQuery("SELECT DISTINCT t from Trip t LEFT JOIN FETCH t.guide ORDER BY t.id ASC",
-                    Trip.class)
+            return Deadline.withTimeout(em.createQuery("SELECT DISTINCT t from Trip t LEFT JOIN FETCH t.guide ORDER BY t.id ASC",
+                    Trip.class))
+                    .getResultList();
+        }catch (ApiException ex){
+            throw ex;
+        }catch (QueryTimeoutException ex){
+            throw Deadline.exceeded();
+        }catch (Exception ex){
+            throw new ApiException(500, "Error Getting All Trips: " + ex.getMessage());
+        }
+    }
+
+    // Only the category, for the packing weight endpoint which does not need the rest of the trip
+    public Category getCategoryById(int id) {
+        try(EntityManager em = emf.createEntityManager()){
+            List<Category> result = Deadline.withTimeout(em.createQuery("SELECT t.category FROM Trip t WHERE t.id = :id", Category.class))
+                    .setParameter("id", id)
                     .getResultList();
+            if (result.isEmpty()) {
+                throw new ApiException(404, "Trip Not Found: " + id);
+            }
+            return result.get(0);
+        }catch (ApiException ex){
+            throw ex;
+        }catch (QueryTimeoutException ex){
+            throw Deadline.exceeded();
+        }catch (Exception ex){
+            throw new ApiException(500, "Error Getting Trip: " + ex.getMessage());
+        }
+    }
+
+    // trip id -> category for many trips, one IN query per chunk
+    public Map<Integer, Category> getCategoriesByIds(List<Integer> ids) {
+        try(EntityManager em = emf.createEntityManager()){
+            Map<Integer, Category> categories = new LinkedHashMap<>();
+            for (List<Integer> chunk : IdList.chunk(ids, IN_CHUNK_SIZE)) {
+                Deadline.withTimeout(em.createQuery("SELECT t.id, t.category FROM Trip t WHERE t.id IN :ids", Object[].class))
+                        .setParameter("ids", chunk)
+                        .getResultList()
+                        .forEach(row -> categories.put((Integer) row[0], (Category) row[1]));
+            }
+            return categories;
+        }catch (ApiException ex){
+            throw ex;
+        }catch (QueryTimeoutException ex){
+            throw Deadline.exceeded();
+        }catch (Exception ex){
+            throw new ApiException(500, "Error Getting Trip Categories: " + ex.getMessage());
+        }
+    }
+
+    // Loads many trips with one IN query per chunk, all on the same EntityManager. Order is not guaranteed
+    public List<Trip> getByIds(List<Integer> ids) {
+        try(EntityManager em = emf.createEntityManager()){
+            List<Trip> trips = new ArrayList<>(ids.size());
+            for (List<Integer> chunk : IdList.chunk(ids, IN_CHUNK_SIZE)) {
+                trips.addAll(Deadline.withTimeout(em.createQuery("SELECT DISTINCT t FROM Trip t LEFT JOIN FETCH t.guide WHERE t.id IN :ids",
+                        Trip.class))
+                        .setParameter("ids", chunk)
+                        .getResultList());
+            }
+            return trips;
+        }catch (ApiException ex){
+            throw ex;
+        }catch (QueryTimeoutException ex){
+            throw Deadline.exceeded();
+        }catch (Exception ex){
+            throw new ApiException(500, "Error Getting Trips: " + ex.getMessage());
+        }
+    }
+
+    // Only selects the requested columns. Category is optional and narrows the result like the category filter
+    public List<Tuple> getAllProjected(List<String> fields, Category category) {
+        String jpql = "SELECT " + selectClause(fields) + " FROM Trip t LEFT JOIN t.guide g"
+                + (category != null ? " WHERE t.category = :category" : "")
+                + " ORDER BY t.id ASC";
+        try(EntityManager em = emf.createEntityManager()){
+            TypedQuery<Tuple> query = Deadline.withTimeout(em.createQuery(jpql, Tuple.class));
+            if (category != null) {
+                query.setParameter("category", category);
+            }
+            return query.getResultList();
+        }catch (ApiException ex){
+            throw ex;
+        }catch (QueryTimeoutException ex){
+            throw Deadline.exceeded();
         }catch (Exception ex){
             throw new ApiException(500, "Error Getting All Trips: " + ex.getMessage());
         }
     }
 
+    public Tuple getByIdProjected(int id, List<String> fields) {
+        String jpql = "SELECT " + selectClause(fields) + " FROM Trip t LEFT JOIN t.guide g WHERE t.id = :id";
+        try(EntityManager em = emf.createEntityManager()){
+            List<Tuple> result = Deadline.withTimeout(em.createQuery(jpql, Tuple.class))
+                    .setParameter("id", id)
+                    .getResultList();
+            if (result.isEmpty()) {
+                throw new ApiException(404, "Trip Not Found: " + id);
+            }
+            return result.get(0);
+        }catch (ApiException ex){
+            throw ex;
+        }catch (QueryTimeoutException ex){
+            throw Deadline.exceeded();
+        }catch (Exception ex){
+            throw new ApiException(500, "Error Getting Trip: " + ex.getMessage());
+        }
+    }
+
+    // Field names are validated against PROJECTABLE_FIELDS before they get here, so they are safe to inline
+    private static String selectClause(List<String> fields) {
+        return fields.stream()
+                .map(field -> PROJECTABLE_FIELDS.get(field) + " AS " + field)
+                .collect(Collectors.joining(", "));
+    }
+
     @Override
     public Trip update(int id, Trip trip) {
         try(EntityManager em = emf.createEntityManager()){
@@ -0,0 +1,18 @@
+package app.dtos;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.*;
+
+// One sub-request of POST /batch, e.g. { "id": "trip", "method": "GET", "path": "/trips/1" }
+@Getter
+@Setter
+@ToString
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BatchRequestDTO {
+    private String id;
+    private String method;
+    private String path;
+    private JsonNode body;
+}
@@ -0,0 +1,17 @@
+package app.dtos;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.*;
+
+// Result of one sub-request of POST /batch, in the same position as the request
+@Getter
+@Setter
+@ToString
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BatchResponseDTO {
+    private String id;
+    private int status;
+    private JsonNode body;
+}
@@ -0,0 +1,23 @@
+package app.dtos;
+
+import lombok.*;
+
+import java.util.List;
+
+// Response of POST /auth/users/bulk: one result per requested account in request order, the number of
+// accounts per status, and throughput
+@Getter
+@Setter
+@ToString
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BulkProvisionDTO {
+    private List<UserProvisionResultDTO> results;
+    private int created;
+    private int exists;
+    private int invalid;
+    private int failed;
+    private long elapsedMillis;
+    private double usersPerSecond;
+}
@@ -0,0 +1,17 @@
+package app.dtos;
+
+import lombok.*;
+
+import java.util.List;
+
+// Result of a multi-get (?ids=1,2,3): the found items in request order and the ids that did not exist
+@Getter
+@Setter
+@ToString
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class MultiGetDTO<T> {
+    private List<T> items;
+    private List<Integer> missingIds;
+}
@@ -0,0 +1,19 @@
+package app.dtos;
+
+import lombok.*;
+
+import java.util.List;
+import java.util.Map;
+
+// Packing weight (grams) per trip id in request order, the sum over all found trips and the ids that did not exist
+@Getter
+@Setter
+@ToString
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class PackingWeightsDTO {
+    private Map<Integer, Integer> weights;
+    private long totalWeight;
+    private List<Integer> missingIds;
+}
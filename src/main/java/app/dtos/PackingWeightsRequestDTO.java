@@ -0,0 +1,16 @@
+package app.dtos;
+
+import lombok.*;
+
+import java.util.List;
+
+// Body of POST /trips/packing/weights
+@Getter
+@Setter
+@ToString
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class PackingWeightsRequestDTO {
+    private List<Integer> tripIds;
+}
@@ -0,0 +1,18 @@
+package app.dtos;
+
+import lombok.*;
+
+import java.util.Set;
+
+// One account in a bulk provisioning request. Roles default to User
+@Getter
+@Setter
+@ToString(exclude = "password")
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class UserProvisionDTO {
+    private String username;
+    private String password;
+    private Set<String> roles;
+}
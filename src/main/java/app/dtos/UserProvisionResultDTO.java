@@ -0,0 +1,16 @@
+package app.dtos;
+
+import lombok.*;
+
+// Outcome for one account: CREATED, EXISTS, INVALID or FAILED, with a message for the last three
+@Getter
+@Setter
+@ToString
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class UserProvisionResultDTO {
+    private String username;
+    private String status;
+    private String msg;
+}
@@ -3,7 +3,7 @@ package app.entities;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import lombok.*;
-import org.mindrot.jbcrypt.BCrypt;
+import app.security.PasswordHasher;
 
 import java.io.Serial;
 import java.io.Serializable;
@@ -55,13 +55,14 @@ public class User implements Serializable {
         return rolesAsStrings;
     }
 
+    // BCrypt runs on the bounded PasswordHasher pool (429 when it is full)
     public boolean verifyPassword(String pw) {
-        return BCrypt.checkpw(pw, this.password);
+        return PasswordHasher.verify(pw, this.password);
     }
 
     public User(String userName, String userPass) {
         this.userName = userName;
-        this.password = BCrypt.hashpw(userPass, BCrypt.gensalt());
+        this.password = PasswordHasher.hash(userPass);
     }
 
     public User(String userName, Set<Role> roleEntityList) {
@@ -0,0 +1,18 @@
+package app.routes;
+
+import app.controllers.BatchController;
+import app.security.Roles;
+import io.javalin.apibuilder.EndpointGroup;
+
+import static io.javalin.apibuilder.ApiBuilder.*;
+
+public class BatchRoutes {
+    private final BatchController batchController = new BatchController();
+
+    public EndpointGroup getRoutes() {
+        return () -> {
+            // Open endpoint: every sub-request is authenticated and authorized on its own
+            post("batch", batchController.executeBatch(), Roles.ANYONE);
+        };
+    }
+}
@@ -23,7 +23,14 @@ public class GuideRoutes {
         return () -> {
             path("guides", () -> {
                 post(guideController.create());
-                get(guideController.getAll());
+                // ?ids=1,2,3 fetches many guides in one round-trip
+                get(ctx -> {
+                    if (ctx.queryParam("ids") != null) {
+                        guideController.getByIds().handle(ctx);
+                    } else {
+                        guideController.getAll().handle(ctx);
+                    }
+                });
 
                 path("{id}", () -> {
                     get(guideController.getById());
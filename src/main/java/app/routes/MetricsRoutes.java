@@ -0,0 +1,17 @@
+package app.routes;
+
+import app.security.Roles;
+import app.utils.Metrics;
+import io.javalin.apibuilder.EndpointGroup;
+
+import static io.javalin.apibuilder.ApiBuilder.*;
+
+public class MetricsRoutes {
+
+    public EndpointGroup getRoutes() {
+        return () -> {
+            // Counters and gauges from Metrics, e.g. circuit breaker state and bulkhead rejections
+            get("metrics", ctx -> ctx.json(Metrics.snapshot()), Roles.ADMIN);
+        };
+    }
+}
@@ -0,0 +1,21 @@
+package app.routes;
+
+import app.config.AppSettings;
+import app.security.Roles;
+import io.javalin.apibuilder.EndpointGroup;
+
+import static io.javalin.apibuilder.ApiBuilder.*;
+
+public class SettingsRoutes {
+
+    public EndpointGroup getRoutes() {
+        return () -> {
+            // Reads the settings again, e.g. after a rotated SECRET_KEY. Values that sized pools or limits
+            // at startup (DB_POOL_SIZE, BCRYPT_THREADS, ...) keep their old value until a restart
+            post("settings/reload", ctx -> {
+                AppSettings.reload();
+                ctx.status(204);
+            }, Roles.ADMIN);
+        };
+    }
+}
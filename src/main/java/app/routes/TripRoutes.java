@@ -18,16 +18,19 @@ public class TripRoutes {
             path("trips", () -> {
                 post(tripController.create(), Roles.ADMIN);
 
-                // Single GET handler that handles filtering or returns all
+                // Single GET handler that handles multi-get (?ids=), filtering or returns all
                 get(ctx -> {
                     String category = ctx.queryParam("category");
-                    if (category != null && !category.isBlank()) {
+                    if (ctx.queryParam("ids") != null) {
+                        tripController.getByIds().handle(ctx);
+                    } else if (category != null && !category.isBlank()) {
                         tripController.filterTripsByCategory().handle(ctx);
                     } else {
                         tripController.getAll().handle(ctx);
                     }
                 }, Roles.USER);
                 get("guides/totalprice", tripController.getTotalTripPriceByGuide(), Roles.USER);
+                post("packing/weights", tripController.getPackingWeights(), Roles.USER); // /trips/packing/weights
 
                 path("{id}", () -> {
                     get(tripController.getById(), Roles.USER);
@@ -0,0 +1,68 @@
+package app.security;
+
+import io.javalin.http.Context;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Who a request really comes from. /batch runs its sub-requests over loopback, so without help every
+ * batched call would look like it came from 127.0.0.1. BatchController forwards the original client IP in
+ * CLIENT_IP_HEADER together with a token that only this process knows; the header is trusted only when the
+ * token matches and the request arrives over loopback, so a client cannot set it itself.
+ */
+public final class ClientIdentity {
+
+    public static final String CLIENT_IP_HEADER = "X-Batch-Client-Ip";
+    public static final String TOKEN_HEADER = "X-Batch-Token";
+
+    // New on every start, never leaves the process
+    private static final String TOKEN = newToken();
+
+    private ClientIdentity() {
+    }
+
+    // Adds the caller's identity to a sub-request of /batch
+    public static void forward(Context ctx, HttpRequest.Builder subRequest) {
+        subRequest.header(CLIENT_IP_HEADER, ip(ctx));
+        subRequest.header(TOKEN_HEADER, TOKEN);
+    }
+
+    // True for a sub-request sent by BatchController of this process
+    public static boolean isBatchSubRequest(Context ctx) {
+        String token = ctx.header(TOKEN_HEADER);
+        return token != null
+                && MessageDigest.isEqual(TOKEN.getBytes(StandardCharsets.UTF_8), token.getBytes(StandardCharsets.UTF_8))
+                && isLoopback(ctx.ip());
+    }
+
+    // The original client's IP for batch sub-requests, otherwise the peer address
+    public static String ip(Context ctx) {
+        if (isBatchSubRequest(ctx)) {
+            String forwarded = ctx.header(CLIENT_IP_HEADER);
+            if (forwarded != null && !forwarded.isBlank()) {
+                return forwarded;
+            }
+        }
+        return ctx.ip();
+    }
+
+    public static boolean isLoopback(String ip) {
+        try {
+            return ip != null && InetAddress.getByName(ip).isLoopbackAddress();
+        } catch (UnknownHostException e) {
+            return false;
+        }
+    }
+
+    private static String newToken() {
+        byte[] bytes = new byte[32];
+        new SecureRandom().nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
@@ -6,10 +6,17 @@ import app.entities.User;
 import app.exceptions.EntityNotFoundException;
 import app.exceptions.ValidationException;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
 public interface ISecurityDAO {
     User getVerifiedUser(String username, String password) throws ValidationException; // used for login
     User createUser(String username, String password); // used for register
     Role createRole(String role);
     User addUserRole(String username, String roleName) throws EntityNotFoundException;
+    Set<String> getRoleNames();
+    Set<String> findExistingUsernames(Collection<String> usernames); // used for bulk provisioning
+    Set<String> createUsers(List<User> users); // users with a ready hash, returns the ones that could not be stored
 
 }
\ No newline at end of file
@@ -0,0 +1,107 @@
+package app.security;
+
+import app.config.AppSettings;
+import app.exceptions.ApiException;
+import app.utils.LatencyTracker;
+import app.utils.Metrics;
+import app.utils.NamedThreadFactory;
+import org.mindrot.jbcrypt.BCrypt;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * All BCrypt work (hashing on register, checking on login) runs on its own small pool, so a burst of
+ * logins can use at most BCRYPT_THREADS cores and cannot starve the rest of the API.
+ * The queue is bounded too: when it is full the call fails at once with 429.
+ * The cost factor comes from BCRYPT_COST; hashes with another cost are rehashed on the next login.
+ */
+public final class PasswordHasher {
+
+    private static final ArrayBlockingQueue<Runnable> QUEUE = new ArrayBlockingQueue<>(AppSettings.get().getBcryptQueueSize());
+    private static final ThreadPoolExecutor EXECUTOR = new ThreadPoolExecutor(
+            AppSettings.get().getBcryptThreads(), AppSettings.get().getBcryptThreads(), 60, TimeUnit.SECONDS,
+            QUEUE, new NamedThreadFactory("bcrypt", true));
+    private static final LatencyTracker HASH_LATENCY = new LatencyTracker(256);
+
+    static {
+        Metrics.gauge("bcrypt.queue_depth", QUEUE::size);
+        Metrics.gauge("bcrypt.active", EXECUTOR::getActiveCount);
+        Metrics.gauge("bcrypt.latency_p50_ms", () -> HASH_LATENCY.percentileNanos(0.5) / 1_000_000.0);
+        Metrics.gauge("bcrypt.latency_p99_ms", () -> HASH_LATENCY.percentileNanos(0.99) / 1_000_000.0);
+    }
+
+    private PasswordHasher() {
+    }
+
+    public static String hash(String password) {
+        Metrics.increment("bcrypt.hashes");
+        int cost = AppSettings.get().getBcryptCost();
+        return run(() -> BCrypt.hashpw(password, BCrypt.gensalt(cost)));
+    }
+
+    // Hashes on the calling thread, bypassing the pool. Only for bulk work that already runs on its own
+    // bounded pool (UserProvisioner), so it neither queues behind nor crowds out logins
+    public static String hashInline(String password) {
+        return BCrypt.hashpw(password, BCrypt.gensalt(AppSettings.get().getBcryptCost()));
+    }
+
+    public static boolean verify(String password, String hash) {
+        return run(() -> BCrypt.checkpw(password, hash));
+    }
+
+    // True when the hash was made with another cost than the configured one
+    public static boolean needsRehash(String hash) {
+        return needsRehash(hash, AppSettings.get().getBcryptCost());
+    }
+
+    static boolean needsRehash(String hash, int configuredCost) {
+        return cost(hash) != configuredCost;
+    }
+
+    // Format: $2a$10$<salt+hash>, the cost is the two digits after the second $
+    static int cost(String hash) {
+        try {
+            return Integer.parseInt(hash.substring(4, 6));
+        } catch (RuntimeException e) {
+            return -1;
+        }
+    }
+
+    private static <T> T run(Supplier<T> work) {
+        return run(work, EXECUTOR);
+    }
+
+    // The caller waits for the result, but the CPU work happens on the given pool (the bcrypt pool).
+    // Used for both login and register, so the 429 message does not name either
+    static <T> T run(Supplier<T> work, Executor executor) {
+        CompletableFuture<T> future;
+        try {
+            future = CompletableFuture.supplyAsync(() -> {
+                long start = System.nanoTime();
+                try {
+                    return work.get();
+                } finally {
+                    HASH_LATENCY.record(System.nanoTime() - start);
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            Metrics.increment("bcrypt.rejected");
+            throw new ApiException(429, "Too many requests, try again later");
+        }
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
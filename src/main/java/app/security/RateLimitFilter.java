@@ -0,0 +1,116 @@
+package app.security;
+
+import app.exceptions.ApiException;
+import app.utils.NamedThreadFactory;
+import app.utils.TokenBucketLimiter;
+import dk.bugelhartmann.UserDTO;
+import io.javalin.http.Context;
+import io.javalin.http.Handler;
+import io.javalin.http.HandlerType;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token-bucket rate limiting per client IP and per authenticated user, with a quota per route group.
+ * perIp() runs as a beforeMatched filter before authenticate, so floods of bad or missing tokens use up the
+ * IP's bucket too; perUser() runs after authenticate, when the user from the token is known.
+ * The IP is ClientIdentity.ip(), so batch sub-requests count against the caller, not against 127.0.0.1;
+ * other loopback clients (health checks on the host) have no IP limit.
+ * Every answer carries RateLimit-Limit / RateLimit-Remaining / RateLimit-Reset for the tighter of the
+ * two buckets (fewest requests left); a rejected request gets 429 with Retry-After.
+ */
+public class RateLimitFilter {
+
+    private static final String IP_RESULT = "rateLimit.ip";
+
+    // Route group -> quota. First matching prefix wins, the last entry matches everything
+    private static final List<Quota> QUOTAS = List.of(
+            new Quota("auth", "/auth", 20, 20.0 / 60, 10, 10.0 / 60), // login and register: slow and guessable
+            new Quota("batch", "/batch", 20, 4, 10, 2),               // one batch is up to 20 calls
+            new Quota("api", "", 200, 100, 100, 50)
+    );
+
+    private static final ScheduledExecutorService EVICTOR =
+            Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("ratelimit-evict", true));
+
+    static {
+        EVICTOR.scheduleAtFixedRate(() -> QUOTAS.forEach(Quota::evictIdle), 1, 1, TimeUnit.MINUTES);
+    }
+
+    private final Map<String, Quota> quotaByRoute = new ConcurrentHashMap<>();
+
+    public Handler perIp() {
+        return (Context ctx) -> {
+            if (ctx.method() == HandlerType.OPTIONS) {
+                return;
+            }
+            String ip = ClientIdentity.ip(ctx);
+            if (ClientIdentity.isLoopback(ip)) {
+                return;
+            }
+            TokenBucketLimiter limiter = quota(ctx).perIp;
+            TokenBucketLimiter.Result result = limiter.tryAcquire(ip);
+            ctx.attribute(IP_RESULT, result);
+            respond(ctx, limiter, result);
+        };
+    }
+
+    public Handler perUser() {
+        return (Context ctx) -> {
+            UserDTO user = ctx.attribute("user");
+            if (ctx.method() == HandlerType.OPTIONS || user == null) {
+                return;
+            }
+            TokenBucketLimiter limiter = quota(ctx).perUser;
+            TokenBucketLimiter.Result result = limiter.tryAcquire(user.getUsername());
+            TokenBucketLimiter.Result ipResult = ctx.attribute(IP_RESULT);
+            if (!result.isAllowed() || ipResult == null || result.getRemaining() < ipResult.getRemaining()) {
+                respond(ctx, limiter, result);
+            }
+        };
+    }
+
+    private Quota quota(Context ctx) {
+        return quotaByRoute.computeIfAbsent(ctx.endpointHandlerPath(), path -> quotaFor(path, ctx.contextPath()));
+    }
+
+    private static void respond(Context ctx, TokenBucketLimiter limiter, TokenBucketLimiter.Result result) {
+        ctx.header("RateLimit-Limit", String.valueOf(limiter.getCapacity()));
+        ctx.header("RateLimit-Remaining", String.valueOf(result.getRemaining()));
+        ctx.header("RateLimit-Reset", String.valueOf(result.getResetSeconds()));
+        if (!result.isAllowed()) {
+            ctx.header("Retry-After", String.valueOf(Math.max(1, result.getResetSeconds())));
+            throw new ApiException(429, "Too many requests, try again in " + Math.max(1, result.getResetSeconds()) + " s");
+        }
+    }
+
+    private static Quota quotaFor(String path, String contextPath) {
+        String route = path.startsWith(contextPath) ? path.substring(contextPath.length()) : path;
+        return QUOTAS.stream()
+                .filter(quota -> route.startsWith(quota.prefix))
+                .findFirst()
+                .orElse(QUOTAS.get(QUOTAS.size() - 1));
+    }
+
+    private static final class Quota {
+        private final String prefix;
+        private final TokenBucketLimiter perIp;
+        private final TokenBucketLimiter perUser;
+
+        private Quota(String name, String prefix, int ipBurst, double ipPerSecond, int userBurst, double userPerSecond) {
+            this.prefix = prefix;
+            this.perIp = new TokenBucketLimiter(name + ".ip", ipBurst, ipPerSecond);
+            this.perUser = new TokenBucketLimiter(name + ".user", userBurst, userPerSecond);
+        }
+
+        private void evictIdle() {
+            perIp.evictIdle();
+            perUser.evictIdle();
+        }
+    }
+}
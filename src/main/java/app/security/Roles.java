@@ -2,8 +2,45 @@ package app.security;
 
 import io.javalin.security.RouteRole;
 
+import java.util.Collection;
+
 public enum Roles implements RouteRole {
     USER,
     ADMIN,
-    ANYONE
+    ANYONE;
+
+    // Role sets as bitmasks: one bit per role, checked with a single AND.
+    // A route mask of 0 means the route is open (no roles or ANYONE)
+    public static final int OPEN = 0;
+
+    public int bit() {
+        return 1 << ordinal();
+    }
+
+    // Required roles of a route
+    public static int routeMask(Collection<? extends RouteRole> routeRoles) {
+        int mask = 0;
+        for (RouteRole role : routeRoles) {
+            if (role == ANYONE) {
+                return OPEN;
+            }
+            if (role instanceof Roles) {
+                mask |= ((Roles) role).bit();
+            }
+        }
+        return mask;
+    }
+
+    // Roles of a user, as names from the token or the database ("User", "ADMIN", ...). Unknown names are ignored
+    public static int userMask(Collection<String> roleNames) {
+        int mask = 0;
+        for (String name : roleNames) {
+            for (Roles role : values()) {
+                if (role != ANYONE && role.name().equalsIgnoreCase(name)) {
+                    mask |= role.bit();
+                }
+            }
+        }
+        return mask;
+    }
 }
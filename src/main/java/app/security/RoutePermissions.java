@@ -0,0 +1,42 @@
+package app.security;
+
+import io.javalin.http.Context;
+import io.javalin.http.HandlerType;
+import io.javalin.event.HandlerMetaInfo;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Required role mask per route (method + path template), compiled when the routes are added.
+ * ApplicationConfig feeds it from config.events.handlerAdded. A route that was not seen at startup is
+ * compiled from ctx.routeRoles() the first time it is hit and then cached, so lookups never build sets.
+ */
+public final class RoutePermissions {
+
+    private static final Map<HandlerType, Map<String, Integer>> MASKS = new EnumMap<>(HandlerType.class);
+
+    static {
+        for (HandlerType type : HandlerType.values()) {
+            MASKS.put(type, new ConcurrentHashMap<>());
+        }
+    }
+
+    private RoutePermissions() {
+    }
+
+    public static void register(HandlerMetaInfo route) {
+        MASKS.get(route.getHttpMethod()).put(route.getPath(), Roles.routeMask(route.getRoles()));
+    }
+
+    public static int requiredMask(Context ctx) {
+        Map<String, Integer> byPath = MASKS.get(ctx.method());
+        Integer mask = byPath.get(ctx.endpointHandlerPath());
+        if (mask == null) {
+            mask = Roles.routeMask(ctx.routeRoles());
+            byPath.put(ctx.endpointHandlerPath(), mask);
+        }
+        return mask;
+    }
+}
@@ -1,12 +1,16 @@
 package app.security;
 
+import app.config.AccessLog;
+import app.config.AppSettings;
 import app.config.HibernateConfig;
+import app.dtos.BulkProvisionDTO;
+import app.dtos.UserProvisionDTO;
 import app.entities.Role;
 import app.entities.User;
 import app.exceptions.ApiException;
 import app.exceptions.EntityNotFoundException;
 import app.exceptions.ValidationException;
-import app.utils.Utils;
+import app.utils.JsonCodec;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import dk.bugelhartmann.TokenSecurity;
@@ -14,25 +18,41 @@ import dk.bugelhartmann.TokenVerificationException;
 import dk.bugelhartmann.UserDTO;
 import io.javalin.http.*;
 import jakarta.persistence.EntityExistsException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.text.ParseException;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 public class SecurityController implements ISecurityController {
 
-    ObjectMapper objectMapper = new ObjectMapper();
+    private static final Logger logger = LoggerFactory.getLogger(SecurityController.class);
+
+    ObjectMapper objectMapper = JsonCodec.mapper();
 
     // DAO til at snakke med databasen (bruges til at finde brugere og verificere login)
     ISecurityDAO securityDAO = new SecurityDAO(HibernateConfig.getEntityManagerFactory());
 
+    // Bulk-oprettelse af brugere (parallel hashing, batchede inserts)
+    UserProvisioner userProvisioner = new UserProvisioner(securityDAO);
+
     // Mapper bruges til at lave JSON-objekter nemt
-    ObjectMapper mapper = new ObjectMapper();
+    ObjectMapper mapper = JsonCodec.mapper();
 
     // Klassen der håndterer alt med tokens (JWT’er)
     TokenSecurity tokenSecurity = new TokenSecurity();
 
+    // Tokens der allerede er verificeret, så signaturen kun tjekkes én gang pr. token (delt af alle instanser)
+    private static final VerifiedTokenCache verifiedTokens = new VerifiedTokenCache();
+
+    static {
+        // Ny secret key efter reload -> gamle verificeringer gælder ikke længere
+        AppSettings.onReload(verifiedTokens::invalidateAll);
+    }
+
 
     /**
      * LOGIN HANDLER
@@ -55,7 +75,7 @@ public class SecurityController implements ISecurityController {
                         .map(Role::getRoleName)
                         .collect(Collectors.toSet());
 
-                System.out.println("Successfully logged in " + verified.getUserName());
+                AccessLog.change(ctx, "LOGIN", "User", verified.getUserName());
 
                 // Opret en DTO som bruges til token (indeholder username + roller)
                 UserDTO userDTO = new UserDTO(verified.getUserName(), stringRoles);
@@ -72,8 +92,12 @@ public class SecurityController implements ISecurityController {
                 // Send JSON tilbage med status 200 OK
                 ctx.json(on).status(200);
 
+            } catch (ApiException e) {
+                // F.eks. 429 når BCrypt-poolen er fuld - sendes videre som den er
+                throw e;
             } catch (Exception e) {
-                e.printStackTrace();
+                // Mislykket login skrives i audit-loggen (ikke på request-tråden)
+                AccessLog.change(ctx, "LOGIN_FAILED", "User", user.getUserName());
                 // Hvis login fejler, smid fejl
                 throw new ValidationException("No user logged in");
             }
@@ -94,6 +118,7 @@ public class SecurityController implements ISecurityController {
             try {
                 UserDTO userInput = ctx.bodyAsClass(UserDTO.class);
                 User created = securityDAO.createUser(userInput.getUsername(), userInput.getPassword());
+                AccessLog.change(ctx, "REGISTER", "User", created.getUserName());
 
                 String token = createToken(new UserDTO(created.getUserName(), Set.of("USER")));
                 ctx.status(HttpStatus.CREATED).json(returnObject
@@ -106,6 +131,23 @@ public class SecurityController implements ISecurityController {
         };
     }
 
+    /**
+     * BULK PROVISION HANDLER (kun ADMIN)
+     * - Tager en JSON-liste af brugere (username, password, roles) fra request body
+     * - Hasher passwords parallelt og gemmer brugerne i batches (se UserProvisioner)
+     * - Returnerer et resultat pr. bruger + hvor mange brugere pr. sekund der blev oprettet
+     */
+    public Handler provisionUsers() {
+        return (ctx) -> {
+            List<UserProvisionDTO> users = List.of(ctx.bodyAsClass(UserProvisionDTO[].class));
+            BulkProvisionDTO result = userProvisioner.provision(users);
+            AccessLog.change(ctx, "BULK_PROVISION " + result.getCreated(), "User", "*");
+
+            // 201 hvis mindst én bruger blev oprettet, ellers 200 med resultaterne
+            ctx.status(result.getCreated() > 0 ? HttpStatus.CREATED : HttpStatus.OK).json(result);
+        };
+    }
+
     /**
      * POPULATE HANDLER
      * - Creates default users and roles
@@ -154,26 +196,24 @@ public class SecurityController implements ISecurityController {
         return (Context ctx) -> {
 
             // Hvis det er en preflight (OPTIONS-request), skal vi ikke tjekke token
-            if (ctx.method().toString().equals("OPTIONS")) {
+            if (ctx.method() == HandlerType.OPTIONS) {
                 ctx.status(200);
                 return;
             }
 
-            // Hent de roller, som er tilladt for den route
-            Set<String> allowedRoles = ctx.routeRoles()
-                    .stream()
-                    .map(role -> role.toString().toUpperCase())
-                    .collect(Collectors.toSet());
+            // Hent rolle-masken for routen (kompileret ved opstart)
+            int requiredRoles = RoutePermissions.requiredMask(ctx);
 
             // Hvis endpointet er åbent (ANYONE), spring auth over
-            if (isOpenEndpoint(allowedRoles))
+            if (requiredRoles == Roles.OPEN)
                 return;
 
             // Ellers: hent og verificér token
-            UserDTO verifiedTokenUser = validateAndGetUserFromToken(ctx);
+            VerifiedTokenCache.Verified verified = validateAndGetUserFromToken(ctx);
 
-            // Gem brugeren i context så vi kan bruge den senere
-            ctx.attribute("user", verifiedTokenUser);
+            // Gem brugeren og brugerens rolle-maske i context så vi kan bruge dem senere
+            ctx.attribute("user", verified.getUser());
+            ctx.attribute("roleMask", verified.getRoleMask());
         };
     }
 
@@ -185,57 +225,43 @@ public class SecurityController implements ISecurityController {
     @Override
     public Handler authorize() {
         return (Context ctx) -> {
-            Set<String> allowedRoles = ctx.routeRoles()
-                    .stream()
-                    .map(role -> role.toString().toUpperCase())
-                    .collect(Collectors.toSet());
+            int requiredRoles = RoutePermissions.requiredMask(ctx);
 
             // 1. Hvis endpoint er åbent, gør ingenting
-            if (isOpenEndpoint(allowedRoles))
+            if (requiredRoles == Roles.OPEN)
                 return;
 
-            // 2. Hent brugeren (fra authenticate)
+            // 2. Hent brugeren og rolle-masken (fra authenticate)
             UserDTO user = ctx.attribute("user");
-            if (user == null) {
+            Integer userRoles = ctx.attribute("roleMask");
+            if (user == null || userRoles == null) {
                 throw new ForbiddenResponse("No user was added from the token");
             }
 
-            // 3. Tjek om brugeren har en af de tilladte roller
-            if (!userHasAllowedRole(user, allowedRoles))
-                throw new ForbiddenResponse("User was not authorized with roles: " + user.getRoles() + ". Needed roles are: " + allowedRoles);
+            // 3. Tjek om brugeren har en af de tilladte roller (ét AND)
+            if ((userRoles & requiredRoles) == 0)
+                throw new ForbiddenResponse("User was not authorized with roles: " + user.getRoles() + ". Needed roles are: " + ctx.routeRoles());
         };
     }
 
 
     /**
      * Opretter et JWT token
-     * - Henter settings (issuer, expire time, secret key)
+     * - Henter settings (issuer, expire time, secret key) fra AppSettings (indlæst én gang,
+     *   fra miljøvariabler når vi er deployet, ellers fra config.properties)
      * - Kalder tokenSecurity til at oprette selve token
      */
     @Override
     public String createToken(UserDTO user) throws Exception {
         try {
-            String ISSUER;
-            String TOKEN_EXPIRE_TIME;
-            String SECRET_KEY;
-
-            // Hvis vi kører i "production" (deployet)
-            if (System.getenv("DEPLOYED") != null) {
-                ISSUER = System.getenv("ISSUER");
-                TOKEN_EXPIRE_TIME = System.getenv("TOKEN_EXPIRE_TIME");
-                SECRET_KEY = System.getenv("SECRET_KEY");
-            } else {
-                // Lokalt - hent værdier fra config.properties
-                ISSUER = Utils.getPropertyValue("ISSUER", "config.properties");
-                TOKEN_EXPIRE_TIME = Utils.getPropertyValue("TOKEN_EXPIRE_TIME", "config.properties");
-                SECRET_KEY = Utils.getPropertyValue("SECRET_KEY", "config.properties");
-            }
+            AppSettings settings = AppSettings.get();
 
             // Brug tokenSecurity til at oprette token
-            return tokenSecurity.createToken(user, ISSUER, TOKEN_EXPIRE_TIME, SECRET_KEY);
+            return tokenSecurity.createToken(user, settings.getTokenIssuer(), settings.getTokenExpireTime(),
+                    settings.getTokenSecretKey());
 
         } catch (Exception e) {
-            e.printStackTrace();
+            logger.error("Could not create token for user {}", user.getUsername(), e);
             throw new ApiException(500, "Could not create token");
         }
     }
@@ -262,18 +288,22 @@ public class SecurityController implements ISecurityController {
 
     /**
      * Verificér token med secret key
-     * - Tjek om token er gyldig og ikke udløbet
-     * - Returnér UserDTO fra token
+     * - Slå token op i cachen først (gyldig indtil tokenets exp)
+     * - Ellers: tjek om token er gyldig og ikke udløbet, og gem resultatet i cachen
+     * - Returnér UserDTO fra token sammen med brugerens rolle-maske
      */
-    private UserDTO verifyToken(String token) {
-        boolean IS_DEPLOYED = (System.getenv("DEPLOYED") != null);
-        String SECRET = IS_DEPLOYED ?
-                System.getenv("SECRET_KEY") :
-                Utils.getPropertyValue("SECRET_KEY", "config.properties");
+    private VerifiedTokenCache.Verified verifyToken(String token) {
+        VerifiedTokenCache.Verified cached = verifiedTokens.get(token);
+        if (cached != null) {
+            return cached;
+        }
+
+        String SECRET = AppSettings.get().getTokenSecretKey();
 
         try {
             if (tokenSecurity.tokenIsValid(token, SECRET) && tokenSecurity.tokenNotExpired(token)) {
-                return tokenSecurity.getUserWithRolesFromToken(token);
+                UserDTO user = tokenSecurity.getUserWithRolesFromToken(token);
+                return verifiedTokens.put(token, user);
             } else {
                 throw new UnauthorizedResponse("Token is not valid");
             }
@@ -288,32 +318,15 @@ public class SecurityController implements ISecurityController {
      * - Verificerer den
      * - Returnerer brugeren fra token
      */
-    private UserDTO validateAndGetUserFromToken(Context ctx) {
+    private VerifiedTokenCache.Verified validateAndGetUserFromToken(Context ctx) {
         String token = getToken(ctx);
-        UserDTO verifiedTokenUser = verifyToken(token);
-        if (verifiedTokenUser == null) {
+        VerifiedTokenCache.Verified verifiedTokenUser = verifyToken(token);
+        if (verifiedTokenUser == null || verifiedTokenUser.getUser() == null) {
             throw new UnauthorizedResponse("Invalid user or token");
         }
         return verifiedTokenUser;
     }
 
-    /**
-     * Returnerer true hvis endpointet er åbent (ingen roller eller ANYONE)
-     */
-    private boolean isOpenEndpoint(Set<String> allowedRoles) {
-        if (allowedRoles.isEmpty())
-            return true;
-        return allowedRoles.contains("ANYONE");
-    }
-
-    /**
-     * Returnerer true hvis brugeren har mindst én af de krævede roller
-     */
-    private static boolean userHasAllowedRole(UserDTO user, Set<String> allowedRoles) {
-        return user.getRoles().stream()
-                .anyMatch(role -> allowedRoles.contains(role.toUpperCase()));
-    }
-
     // Health check for the API. Used in deployment
     public void healthCheck(Context ctx) {
         ctx.status(200).json(Map.of("msg", "API is up and running")); // safe and proper
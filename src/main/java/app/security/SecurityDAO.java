@@ -4,11 +4,30 @@ import app.entities.Role;
 import app.entities.User;
 import app.exceptions.EntityNotFoundException;
 import app.exceptions.ValidationException;
+import app.utils.Metrics;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityExistsException;
 import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.RollbackException;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class SecurityDAO implements ISecurityDAO{
 
+    // Users per transaction in createUsers, and usernames per IN list in findExistingUsernames
+    private static final int CHUNK_SIZE = 100;
+
+    // Shared by all SecurityDAO instances, so an invalidation here is seen by every login
+    private static final UserCache userCache = new UserCache();
+
+    // Bloom filter of taken usernames, checked on register before hashing
+    private static final UsernameFilter usernames = new UsernameFilter();
+
     private final EntityManagerFactory emf;
 
     public SecurityDAO(EntityManagerFactory emf) {
@@ -17,25 +36,90 @@ public class SecurityDAO implements ISecurityDAO{
 
     @Override
     public User getVerifiedUser(String username, String password) throws ValidationException {
+        // Cache hit: only the BCrypt check, no database round-trip
+        User foundUser = userCache.get(username);
+        if (foundUser == null) {
+            foundUser = loadUser(username);
+        }
+        if (foundUser.verifyPassword(password)) {
+            rehashIfCostChanged(foundUser, password);
+            return foundUser;
+        } else {
+            throw new ValidationException("Invalid username or password");
+        }
+    }
+
+    private User loadUser(String username) throws ValidationException {
+        long version = userCache.version(username); // before the read, see UserCache
         try (EntityManager em = emf.createEntityManager()) {
             User foundUser = em.find(User.class, username);
-            foundUser.getRoles();
-            if (foundUser.verifyPassword(password)) {
-                return foundUser;
-            } else {
+            if (foundUser == null) {
                 throw new ValidationException("Invalid username or password");
             }
+            foundUser.getRoles();
+            userCache.put(foundUser, version);
+            return foundUser;
+        }
+    }
+
+    // The password is only known at login, so that is when an old-cost hash is replaced
+    private void rehashIfCostChanged(User user, String password) {
+        if (!PasswordHasher.needsRehash(user.getPassword())) {
+            return;
         }
+        String newHash = PasswordHasher.hash(password);
+        try (EntityManager em = emf.createEntityManager()) {
+            em.getTransaction().begin();
+            em.find(User.class, user.getUserName()).setPassword(newHash);
+            em.getTransaction().commit();
+        }
+        user.setPassword(newHash);
+        userCache.invalidate(user.getUserName());
+        Metrics.increment("bcrypt.rehashed");
     }
 
+    public static void invalidateUser(String username) {
+        userCache.invalidate(username);
+    }
+
+    // Duplicates are turned away before the BCrypt hash in the User constructor: a Bloom filter miss means
+    // the name is free, a hit is confirmed by a primary key lookup
     @Override
     public User createUser(String username, String password) {
+        if (usernameMightExist(username) && usernameExists(username)) {
+            Metrics.increment("auth.register.duplicate_rejected");
+            throw new EntityExistsException("User already exists");
+        }
         try (EntityManager em = emf.createEntityManager()) {
             User user = new User(username, password);
             em.getTransaction().begin();
             em.persist(user);
             em.getTransaction().commit();
+            userCache.invalidate(username);
+            usernames.add(username);
             return user;
+        } catch (RollbackException e) {
+            // Registered by a concurrent request between the check and the commit
+            if (usernameExists(username)) {
+                throw new EntityExistsException("User already exists", e);
+            }
+            throw e;
+        }
+    }
+
+    private boolean usernameMightExist(String username) {
+        return usernames.mightExist(username, () -> {
+            try (EntityManager em = emf.createEntityManager()) {
+                return em.createQuery("SELECT u.userName FROM User u", String.class).getResultList();
+            }
+        });
+    }
+
+    private boolean usernameExists(String username) {
+        try (EntityManager em = emf.createEntityManager()) {
+            return em.createQuery("SELECT COUNT(u) FROM User u WHERE u.userName = :name", Long.class)
+                    .setParameter("name", username)
+                    .getSingleResult() > 0;
         }
     }
 
@@ -58,11 +142,84 @@ public class SecurityDAO implements ISecurityDAO{
             if (foundUser == null || foundRole == null) {
                 throw new EntityNotFoundException("user and role does not exist");
             }
-            em.find(Role.class, roleName);
             em.getTransaction().begin();
             foundUser.addRole(foundRole);
             em.getTransaction().commit();
+            userCache.invalidate(username);
             return foundUser;
         }
     }
+
+    @Override
+    public Set<String> getRoleNames() {
+        try (EntityManager em = emf.createEntityManager()) {
+            return new HashSet<>(em.createQuery("SELECT r.role FROM Role r", String.class).getResultList());
+        }
+    }
+
+    // No Bloom filter here: its misses are trusted only because createUser has the primary key behind it,
+    // and one IN query per chunk is already cheap compared to hashing the new users
+    @Override
+    public Set<String> findExistingUsernames(Collection<String> names) {
+        List<String> all = List.copyOf(names);
+        Set<String> existing = new HashSet<>();
+        try (EntityManager em = emf.createEntityManager()) {
+            for (int from = 0; from < all.size(); from += CHUNK_SIZE) {
+                existing.addAll(em.createQuery("SELECT u.userName FROM User u WHERE u.userName IN :names", String.class)
+                        .setParameter("names", all.subList(from, Math.min(from + CHUNK_SIZE, all.size())))
+                        .getResultList());
+            }
+        }
+        return existing;
+    }
+
+    // One transaction per chunk; the inserts of a chunk go out as JDBC batches (hibernate.jdbc.batch_size).
+    // If a chunk fails (e.g. a name registered meanwhile) its users are retried one by one,
+    // so a single bad user does not fail the other 99
+    @Override
+    public Set<String> createUsers(List<User> users) {
+        Set<String> failed = new HashSet<>();
+        for (int from = 0; from < users.size(); from += CHUNK_SIZE) {
+            List<User> chunk = users.subList(from, Math.min(from + CHUNK_SIZE, users.size()));
+            if (!persistAll(chunk)) {
+                for (User user : chunk) {
+                    if (!persistAll(List.of(user))) {
+                        failed.add(user.getUserName());
+                    }
+                }
+            }
+            for (User user : chunk) {
+                userCache.invalidate(user.getUserName());
+                if (!failed.contains(user.getUserName())) {
+                    usernames.add(user.getUserName());
+                }
+            }
+        }
+        return failed;
+    }
+
+    private boolean persistAll(List<User> users) {
+        try (EntityManager em = emf.createEntityManager()) {
+            try {
+                em.getTransaction().begin();
+                // References instead of finds: no select per role, and the roles' user sets are never loaded
+                Map<String, Role> roles = new HashMap<>();
+                for (User user : users) {
+                    Set<Role> managed = new HashSet<>();
+                    user.getRoles().forEach(role ->
+                            managed.add(roles.computeIfAbsent(role.getRoleName(), name -> em.getReference(Role.class, name))));
+                    User entity = new User(user.getUserName(), managed);
+                    entity.setPassword(user.getPassword());
+                    em.persist(entity);
+                }
+                em.getTransaction().commit();
+                return true;
+            } catch (RuntimeException e) {
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
+                }
+                return false;
+            }
+        }
+    }
 }
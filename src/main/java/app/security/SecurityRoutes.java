@@ -1,6 +1,6 @@
 package app.security;
 
-import app.utils.Utils;
+import app.utils.JsonCodec;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.javalin.apibuilder.EndpointGroup;
 
@@ -8,7 +8,7 @@ import static io.javalin.apibuilder.ApiBuilder.*;
 
 public class SecurityRoutes {
     private final SecurityController securityController = new SecurityController();
-    private static final ObjectMapper jsonMapper = new Utils().getObjectMapper();
+    private static final ObjectMapper jsonMapper = JsonCodec.mapper();
 
     public EndpointGroup getSecurityRoutes () {
         return () -> {
@@ -16,6 +16,7 @@ public class SecurityRoutes {
                 post("login", securityController.login());
                 post("/register", securityController.register(), Roles.ANYONE);
                 post("/populate",securityController.populate(), Roles.ANYONE);
+                post("/users/bulk", securityController.provisionUsers(), Roles.ADMIN);
 
                 get("healthcheck", securityController::healthCheck, Roles.ANYONE);
             });
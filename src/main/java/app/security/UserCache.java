@@ -0,0 +1,137 @@
+package app.security;
+
+import app.entities.Role;
+import app.entities.User;
+import app.utils.Metrics;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * Password hash and role names per username, so a login does not need the database.
+ * Entries expire after the TTL and are dropped explicitly whenever SecurityDAO changes a user or its roles.
+ * get() hands out a detached User built from the entry, never a shared instance.
+ * A load races with changes: a user read from the database just before an invalidate() must not be put
+ * back afterwards with its old roles. So a loader takes version() before it reads and passes it to put();
+ * invalidate() bumps the version, and a put with an outdated version is dropped. Versions are kept per
+ * stripe of usernames, so they take fixed memory; a collision only means an entry is not cached.
+ */
+public class UserCache {
+
+    public static final Duration DEFAULT_TTL = Duration.ofMinutes(5);
+    public static final int DEFAULT_MAX_ENTRIES = 10_000;
+    private static final int VERSION_STRIPES = 1024; // power of two
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLongArray versions = new AtomicLongArray(VERSION_STRIPES);
+    private final long ttlNanos;
+    private final int maxEntries;
+    private final LongSupplier clock;
+
+    public UserCache() {
+        this(DEFAULT_TTL, DEFAULT_MAX_ENTRIES, System::nanoTime);
+        Metrics.gauge("auth.user_cache.size", entries::size);
+    }
+
+    public UserCache(Duration ttl, int maxEntries, LongSupplier clock) {
+        this.ttlNanos = ttl.toNanos();
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+    }
+
+    public User get(String username) {
+        Entry entry = entries.get(username);
+        if (entry == null || clock.getAsLong() - entry.loadedAt >= ttlNanos) {
+            if (entry != null) {
+                entries.remove(username, entry);
+            }
+            Metrics.increment("auth.user_cache.miss");
+            return null;
+        }
+        Metrics.increment("auth.user_cache.hit");
+        return entry.toUser();
+    }
+
+    // Take this before reading the user from the database
+    public long version(String username) {
+        return versions.get(stripe(username));
+    }
+
+    // Caches the user unless it was invalidated since version was taken
+    public void put(User user, long version) {
+        String username = user.getUserName();
+        if (version(username) != version) {
+            return;
+        }
+        if (entries.size() >= maxEntries) {
+            makeRoom();
+        }
+        Set<String> roleNames = user.getRoles().stream()
+                .map(Role::getRoleName)
+                .collect(Collectors.toUnmodifiableSet());
+        Entry entry = new Entry(username, user.getPassword(), roleNames, clock.getAsLong());
+        entries.put(username, entry);
+        if (version(username) != version) {
+            entries.remove(username, entry); // invalidated while we put it
+        }
+    }
+
+    public void invalidate(String username) {
+        versions.incrementAndGet(stripe(username));
+        entries.remove(username);
+    }
+
+    public void invalidateAll() {
+        for (int i = 0; i < VERSION_STRIPES; i++) {
+            versions.incrementAndGet(i);
+        }
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private void makeRoom() {
+        long now = clock.getAsLong();
+        entries.values().removeIf(entry -> now - entry.loadedAt >= ttlNanos);
+        Iterator<String> keys = entries.keySet().iterator();
+        while (entries.size() >= maxEntries && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+
+    private static int stripe(String username) {
+        return username.hashCode() & (VERSION_STRIPES - 1);
+    }
+
+    private static final class Entry {
+        private final String username;
+        private final String passwordHash;
+        private final Set<String> roleNames;
+        private final long loadedAt;
+
+        private Entry(String username, String passwordHash, Set<String> roleNames, long loadedAt) {
+            this.username = username;
+            this.passwordHash = passwordHash;
+            this.roleNames = roleNames;
+            this.loadedAt = loadedAt;
+        }
+
+        private User toUser() {
+            Set<Role> roles = new HashSet<>();
+            roleNames.forEach(name -> roles.add(new Role(name)));
+            User user = new User(username, roles);
+            user.setPassword(passwordHash);
+            return user;
+        }
+    }
+}
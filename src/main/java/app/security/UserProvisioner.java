@@ -0,0 +1,176 @@
+package app.security;
+
+import app.dtos.BulkProvisionDTO;
+import app.dtos.UserProvisionDTO;
+import app.dtos.UserProvisionResultDTO;
+import app.entities.Role;
+import app.entities.User;
+import app.exceptions.ApiException;
+import app.utils.Deadline;
+import app.utils.Metrics;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+/**
+ * Creates many accounts in one call (admin onboarding of a partner).
+ * Validation and the existing-name check run first, so no BCrypt work is spent on rejected users.
+ * Passwords are then hashed in parallel on a fork-join pool with one thread per core - separate from the
+ * PasswordHasher pool, so logins keep their own threads - and the users are stored in batched transactions.
+ * It all happens within the request, so MAX_USERS is what a few cores can hash in the route's 30 s budget
+ * (about 80 ms per hash at cost 10). Users not hashed when the deadline passes are reported as FAILED.
+ */
+public class UserProvisioner {
+
+    public static final int MAX_USERS = 500;
+    private static final int MAX_USERNAME_LENGTH = 25; // users.user_name
+    private static final String DEFAULT_ROLE = "User";
+
+    public static final String CREATED = "CREATED";
+    public static final String EXISTS = "EXISTS";
+    public static final String INVALID = "INVALID";
+    public static final String FAILED = "FAILED";
+
+    private static final ForkJoinPool HASH_POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    static {
+        Metrics.gauge("provision.hash_pool.active", HASH_POOL::getActiveThreadCount);
+    }
+
+    private final ISecurityDAO securityDAO;
+
+    public UserProvisioner(ISecurityDAO securityDAO) {
+        this.securityDAO = securityDAO;
+    }
+
+    public BulkProvisionDTO provision(List<UserProvisionDTO> requested) {
+        if (requested == null || requested.isEmpty()) {
+            throw new ApiException(400, "No users to provision");
+        }
+        if (requested.size() > MAX_USERS) {
+            throw new ApiException(400, "At most " + MAX_USERS + " users per request");
+        }
+        long start = System.nanoTime();
+
+        // One result per requested user, in request order. Duplicates within the request keep the first one
+        List<UserProvisionResultDTO> results = new ArrayList<>(requested.size());
+        Map<String, UserProvisionDTO> candidates = new LinkedHashMap<>();
+        Set<String> knownRoles = securityDAO.getRoleNames();
+        for (UserProvisionDTO dto : requested) {
+            String problem = validate(dto, knownRoles);
+            if (problem == null && candidates.containsKey(dto.getUsername())) {
+                problem = "Duplicate username in request";
+            }
+            String username = dto == null ? null : dto.getUsername();
+            results.add(new UserProvisionResultDTO(username, problem == null ? null : INVALID, problem));
+            if (problem == null) {
+                candidates.put(username, dto);
+            }
+        }
+
+        Set<String> existing = candidates.isEmpty() ? Set.of() : securityDAO.findExistingUsernames(candidates.keySet());
+        existing.forEach(candidates::remove);
+
+        Map<String, String> failures = new HashMap<>();
+        List<User> hashed = hashAll(candidates.values(), Deadline.current(), failures);
+        securityDAO.createUsers(hashed).forEach(username -> failures.put(username, "Could not store user"));
+
+        Map<String, Integer> counts = new HashMap<>();
+        for (UserProvisionResultDTO result : results) {
+            if (result.getStatus() == null) {
+                if (existing.contains(result.getUsername())) {
+                    result.setStatus(EXISTS);
+                    result.setMsg("User already exists");
+                } else if (failures.containsKey(result.getUsername())) {
+                    result.setStatus(FAILED);
+                    result.setMsg(failures.get(result.getUsername()));
+                } else {
+                    result.setStatus(CREATED);
+                }
+            }
+            counts.merge(result.getStatus(), 1, Integer::sum);
+        }
+
+        long elapsedNanos = System.nanoTime() - start;
+        int created = counts.getOrDefault(CREATED, 0);
+        Metrics.counter("provision.users.created").add(created);
+        Metrics.counter("provision.users.exists").add(counts.getOrDefault(EXISTS, 0));
+        Metrics.counter("provision.users.invalid").add(counts.getOrDefault(INVALID, 0));
+        Metrics.counter("provision.users.failed").add(counts.getOrDefault(FAILED, 0));
+        return BulkProvisionDTO.builder()
+                .results(results)
+                .created(created)
+                .exists(counts.getOrDefault(EXISTS, 0))
+                .invalid(counts.getOrDefault(INVALID, 0))
+                .failed(counts.getOrDefault(FAILED, 0))
+                .elapsedMillis(elapsedNanos / 1_000_000)
+                .usersPerSecond(elapsedNanos == 0 ? 0 : created * 1_000_000_000.0 / elapsedNanos)
+                .build();
+    }
+
+    private static String validate(UserProvisionDTO dto, Set<String> knownRoles) {
+        if (dto == null || dto.getUsername() == null || dto.getUsername().isBlank()) {
+            return "Username is required";
+        }
+        if (dto.getUsername().length() > MAX_USERNAME_LENGTH) {
+            return "Username is longer than " + MAX_USERNAME_LENGTH + " characters";
+        }
+        if (dto.getPassword() == null || dto.getPassword().isEmpty()) {
+            return "Password is required";
+        }
+        for (String role : rolesOf(dto)) {
+            if (!knownRoles.contains(role)) {
+                return "Unknown role: " + role;
+            }
+        }
+        return null;
+    }
+
+    private static Set<String> rolesOf(UserProvisionDTO dto) {
+        return dto.getRoles() == null || dto.getRoles().isEmpty() ? Set.of(DEFAULT_ROLE) : dto.getRoles();
+    }
+
+    // Runs the parallel stream inside HASH_POOL, so its tasks use that pool instead of the common pool.
+    // A user whose password could not be hashed, or was not reached before the deadline, comes back
+    // without a password and is reported as failed
+    private static List<User> hashAll(Collection<UserProvisionDTO> dtos, Deadline deadline, Map<String, String> failures) {
+        List<User> hashed = HASH_POOL.submit(() -> dtos.parallelStream()
+                .map(dto -> hash(dto, deadline))
+                .toList()).join();
+
+        List<User> users = new ArrayList<>(hashed.size());
+        for (User user : hashed) {
+            if (user.getPassword() != null) {
+                users.add(user);
+            } else {
+                failures.put(user.getUserName(), deadline != null && deadline.isExpired()
+                        ? "Not hashed before the request deadline"
+                        : "Could not hash password");
+            }
+        }
+        return users;
+    }
+
+    private static User hash(UserProvisionDTO dto, Deadline deadline) {
+        User user = new User(dto.getUsername(), rolesOf(dto).stream()
+                .map(Role::new)
+                .collect(Collectors.toCollection(HashSet::new)));
+        if (deadline != null && deadline.isExpired()) {
+            return user;
+        }
+        try {
+            user.setPassword(PasswordHasher.hashInline(dto.getPassword()));
+        } catch (RuntimeException e) {
+            user.setPassword(null);
+        }
+        return user;
+    }
+}
@@ -0,0 +1,67 @@
+package app.security;
+
+import app.utils.BloomFilter;
+import app.utils.Metrics;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Bloom filter of all usernames, so registration can tell most new names apart from taken ones
+ * before spending a BCrypt hash. Loaded from the database on first use and whenever more names have
+ * been added than it was sized for. "Might exist" still has to be confirmed by a query; "does not exist"
+ * is trusted, and if it is ever wrong (a name added by another instance) the primary key catches the duplicate.
+ */
+public class UsernameFilter {
+
+    private static final int MIN_CAPACITY = 100_000;
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private final int minCapacity;
+    private volatile BloomFilter filter;
+    private final AtomicInteger size = new AtomicInteger();
+
+    public UsernameFilter() {
+        this(MIN_CAPACITY);
+        Metrics.gauge("auth.username_filter.size", size::get);
+    }
+
+    UsernameFilter(int minCapacity) {
+        this.minCapacity = minCapacity;
+    }
+
+    // True when the name may be taken. Without a filter (loading failed) every name may be taken
+    public boolean mightExist(String username, Supplier<List<String>> loadAll) {
+        BloomFilter current = filter != null ? filter : load(loadAll);
+        return current == null || current.mightContain(username);
+    }
+
+    public void add(String username) {
+        BloomFilter current = filter;
+        if (current == null) {
+            return; // the next load reads the name from the database
+        }
+        current.add(username);
+        if (size.incrementAndGet() > current.getCapacity()) {
+            filter = null; // full: rebuilt larger on the next check
+        }
+    }
+
+    private synchronized BloomFilter load(Supplier<List<String>> loadAll) {
+        if (filter != null) {
+            return filter;
+        }
+        try {
+            List<String> usernames = loadAll.get();
+            BloomFilter loaded = new BloomFilter(Math.max(minCapacity, usernames.size() * 2), FALSE_POSITIVE_RATE);
+            usernames.forEach(loaded::add);
+            size.set(usernames.size());
+            filter = loaded;
+            return loaded;
+        } catch (RuntimeException e) {
+            Metrics.increment("auth.username_filter.load_failed");
+            return null;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package app.security;
+
+import app.utils.JsonCodec;
+import app.utils.Metrics;
+import com.fasterxml.jackson.databind.JsonNode;
+import dk.bugelhartmann.UserDTO;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Tokens that already passed signature and expiry checks, with the user they carry and the user's role mask.
+ * Keyed by the SHA-256 digest of the token, so the tokens themselves are not kept in memory.
+ * An entry lives until the token's own exp claim; tokens without exp are not cached.
+ * Bounded: when full, expired entries are swept first and then arbitrary entries are dropped.
+ */
+public class VerifiedTokenCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 10_000;
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final int maxEntries;
+    private final LongSupplier clockMillis;
+
+    public VerifiedTokenCache() {
+        this(DEFAULT_MAX_ENTRIES, System::currentTimeMillis);
+        Metrics.gauge("auth.token_cache.size", entries::size);
+    }
+
+    public VerifiedTokenCache(int maxEntries, LongSupplier clockMillis) {
+        this.maxEntries = maxEntries;
+        this.clockMillis = clockMillis;
+    }
+
+    // The verified token, or null when it has not been verified yet or has expired since
+    public Verified get(String token) {
+        String key = digest(token);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            Metrics.increment("auth.token_cache.miss");
+            return null;
+        }
+        if (entry.expiresAtMillis <= clockMillis.getAsLong()) {
+            entries.remove(key, entry);
+            Metrics.increment("auth.token_cache.miss");
+            return null;
+        }
+        Metrics.increment("auth.token_cache.hit");
+        return entry.verified;
+    }
+
+    // Only call this after the token has been fully verified
+    public Verified put(String token, UserDTO user) {
+        Verified verified = new Verified(user, Roles.userMask(user.getRoles()));
+        long expiresAt = expiresAtMillis(token);
+        if (expiresAt <= clockMillis.getAsLong()) {
+            return verified;
+        }
+        if (entries.size() >= maxEntries) {
+            makeRoom();
+        }
+        entries.put(digest(token), new Entry(verified, expiresAt));
+        return verified;
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private void makeRoom() {
+        long now = clockMillis.getAsLong();
+        entries.values().removeIf(entry -> entry.expiresAtMillis <= now);
+        Iterator<String> keys = entries.keySet().iterator();
+        while (entries.size() >= maxEntries && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+            Metrics.increment("auth.token_cache.evicted");
+        }
+    }
+
+    // exp (seconds since epoch) from the JWT payload, or 0 when it is missing or unreadable
+    static long expiresAtMillis(String token) {
+        String[] parts = token.split("\\.");
+        if (parts.length < 2) {
+            return 0;
+        }
+        try {
+            JsonNode exp = JsonCodec.mapper().readTree(Base64.getUrlDecoder().decode(parts[1])).get("exp");
+            return exp != null && exp.canConvertToLong() ? exp.asLong() * 1000 : 0;
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+
+    static String digest(String token) {
+        byte[] hash = SHA_256.get().digest(token.getBytes(StandardCharsets.US_ASCII));
+        return Base64.getEncoder().encodeToString(hash);
+    }
+
+    public static final class Verified {
+        private final UserDTO user;
+        private final int roleMask;
+
+        public Verified(UserDTO user, int roleMask) {
+            this.user = user;
+            this.roleMask = roleMask;
+        }
+
+        public UserDTO getUser() {
+            return user;
+        }
+
+        public int getRoleMask() {
+            return roleMask;
+        }
+    }
+
+    private static final class Entry {
+        private final Verified verified;
+        private final long expiresAtMillis;
+
+        private Entry(Verified verified, long expiresAtMillis) {
+            this.verified = verified;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+}
@@ -3,12 +3,17 @@ package app.services;
 import app.daos.GuideDAO;
 import app.daos.TripDAO;
 import app.dtos.GuideDTO;
+import app.dtos.MultiGetDTO;
 import app.entities.Guide;
 import app.exceptions.ApiException;
 import app.mappers.GuideMapper;
+import app.utils.FieldSelection;
 import jakarta.persistence.EntityManagerFactory;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 public class GuideService {
@@ -33,6 +38,31 @@ public class GuideService {
                 .map(GuideMapper::toDTO)
                 .collect(Collectors.toList());
     }
+    // Multi-get: one query for all ids, returned in request order with the missing ids reported
+    public MultiGetDTO<GuideDTO> getByIds(List<Integer> ids) {
+        Map<Integer, Guide> found = guideDAO.getByIds(ids).stream()
+                .collect(Collectors.toMap(Guide::getId, Function.identity()));
+        List<GuideDTO> items = new ArrayList<>(found.size());
+        List<Integer> missingIds = new ArrayList<>();
+        for (Integer id : ids) {
+            Guide guide = found.get(id);
+            if (guide != null) {
+                items.add(GuideMapper.toDTO(guide));
+            } else {
+                missingIds.add(id);
+            }
+        }
+        return new MultiGetDTO<>(items, missingIds);
+    }
+    // Sparse fieldsets: only the requested columns are selected and returned
+    public List<Map<String, Object>> getAll(List<String> fields) {
+        return guideDAO.getAllProjected(fields).stream()
+                .map(tuple -> FieldSelection.toMap(tuple, fields))
+                .collect(Collectors.toList());
+    }
+    public Map<String, Object> getById(int id, List<String> fields) {
+        return FieldSelection.toMap(guideDAO.getByIdProjected(id, fields), fields);
+    }
     public GuideDTO update(GuideDTO guideDTO, int id) {
         Guide existing = guideDAO.getById(id);
         if (existing == null) {
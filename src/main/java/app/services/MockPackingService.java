@@ -4,6 +4,7 @@ import app.dtos.PackingItemDTO;
 import app.dtos.PackingResponseDTO;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class MockPackingService extends PackingService {
 
@@ -28,4 +29,14 @@ public class MockPackingService extends PackingService {
     public int getTotalPackingWeight(String category) {
         return 3300; // predictable mock value for test verification
     }
+
+    @Override
+    public CompletableFuture<PackingResponseDTO> getPackingItemsAsync(String category) {
+        return CompletableFuture.completedFuture(getPackingItems(category));
+    }
+
+    @Override
+    public CompletableFuture<Integer> getTotalPackingWeightAsync(String category) {
+        return CompletableFuture.completedFuture(getTotalPackingWeight(category));
+    }
 }
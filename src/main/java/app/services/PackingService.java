@@ -1,54 +1,378 @@
 package app.services;
 
+import app.config.PackingClientConfig;
 import app.dtos.PackingResponseDTO;
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import app.exceptions.ApiException;
+import app.utils.Bulkhead;
+import app.utils.CircuitBreaker;
+import app.utils.Deadline;
+import app.utils.JsonCodec;
+import app.utils.LatencyTracker;
+import app.utils.Metrics;
+import app.utils.NamedThreadFactory;
+import app.utils.RefreshAheadCache;
+import com.fasterxml.jackson.databind.ObjectReader;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
 
-public class PackingService {
+public class PackingService implements AutoCloseable {
 
+    // Packing lists rarely change: serve from memory, refresh in the background after 10 min,
+    // block on a reload after 30 min and fall back to a stale list for up to a day if the upstream fails
+    private static final Duration REFRESH_AFTER = Duration.ofMinutes(10);
+    private static final Duration TTL = Duration.ofMinutes(30);
+    private static final Duration MAX_STALE = Duration.ofHours(24);
+
+    private static final String METRICS_PREFIX = "packing";
+    private static final int MIN_LATENCY_SAMPLES = 20;
+
+    // Open services. The gauges are registered once and read all of them, so a second instance
+    // (tests, a restarted service) does not take the metrics over from the first
+    private static final Set<PackingService> OPEN = ConcurrentHashMap.newKeySet();
+
+    static {
+        Metrics.gauge(METRICS_PREFIX + ".bulkhead.in_flight",
+                () -> OPEN.stream().mapToInt(service -> service.bulkhead.inFlight()).sum());
+        Metrics.gauge(METRICS_PREFIX + ".circuit.state", () -> worstCircuitState().ordinal());
+    }
+
+    private final PackingClientConfig config;
     private final HttpClient client;
-    private final ObjectMapper objectMapper;
+    private final ExecutorService httpExecutor;
+    private final ExecutorService parseExecutor;
+    private final ObjectReader packingReader;
+    private final RefreshAheadCache<String, PackingResponseDTO> cache;
+    private final Bulkhead bulkhead;
+    private final CircuitBreaker circuitBreaker;
+    private final PackingSnapshotStore snapshotStore;
+    private final LatencyTracker latencyTracker = new LatencyTracker(256);
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
 
     public PackingService() {
-        this.client = HttpClient.newHttpClient(); // thread-safe, reusable
-        this.objectMapper = new ObjectMapper()
-                .registerModule(new JavaTimeModule())
-                .disable(com.fasterxml.jackson.databind.SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
-                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        this(PackingClientConfig.defaults());
     }
 
-    public PackingResponseDTO getPackingItems(String category) {
-        String url = "https://packingapi.cphbusinessapps.dk/packinglist/" + category.toLowerCase();
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .GET()
+    public PackingService(PackingClientConfig config) {
+        this.config = config;
+        this.httpExecutor = Executors.newFixedThreadPool(config.getIoThreads(), new NamedThreadFactory("packing-http", true));
+        // thread-safe, reusable. Keeps the connection open between calls (multiplexed when HTTP/2 is negotiated)
+        this.client = HttpClient.newBuilder()
+                .version(config.isHttp2() ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .connectTimeout(config.getConnectTimeout())
+                .executor(httpExecutor)
                 .build();
+        // Bodies are parsed while they stream in, which blocks, so that happens on its own pool (bounded by the bulkhead)
+        this.parseExecutor = Executors.newFixedThreadPool(config.getMaxConcurrentCalls(), new NamedThreadFactory("packing-parse", true));
+        this.packingReader = config.isSkipBuyingOptions()
+                ? JsonCodec.PACKING_RESPONSE_LEAN_READER
+                : JsonCodec.PACKING_RESPONSE_READER;
+        this.cache = new RefreshAheadCache<>(this::fetchPackingItemsAsync, REFRESH_AFTER, TTL, MAX_STALE);
+        this.bulkhead = new Bulkhead(METRICS_PREFIX, config.getMaxConcurrentCalls());
+        this.circuitBreaker = new CircuitBreaker(METRICS_PREFIX,
+                config.getFailureRateThreshold(),
+                config.getCircuitWindowSize(),
+                config.getCircuitMinimumCalls(),
+                config.getCircuitOpenDuration(),
+                config.getCircuitHalfOpenCalls());
+        this.snapshotStore = config.getSnapshotPath() != null ? new PackingSnapshotStore(config.getSnapshotPath()) : null;
+        preWarmFromSnapshot();
+        OPEN.add(this);
+    }
 
-        try {
-            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+    // Non-blocking: completes when the (cached) packing list is available.
+    // If neither the upstream nor the cache can answer, the last snapshot on disk is used.
+    // A load is shared by every caller waiting for the category, so it runs with the configured timeout,
+    // not the caller's deadline; the deadline only ends this caller's wait (504)
+    public CompletableFuture<PackingResponseDTO> getPackingItemsAsync(String category) {
+        String key = category.toLowerCase();
+        Deadline deadline = Deadline.current();
+        CompletableFuture<PackingResponseDTO> result = withSnapshotFallback(key, Deadline.callWith(null, () -> cache.get(key)));
+        return deadline != null ? deadline.bound(result) : result;
+    }
 
-            if (response.statusCode() != 200) {
-                throw new RuntimeException("Failed to fetch packing items: HTTP " + response.statusCode());
+    private CompletableFuture<PackingResponseDTO> withSnapshotFallback(String key, CompletableFuture<PackingResponseDTO> result) {
+        if (snapshotStore == null) {
+            return result;
+        }
+        return result.exceptionallyCompose(error -> {
+            PackingSnapshotStore.Snapshot snapshot = snapshotStore.get(key);
+            if (snapshot == null) {
+                return CompletableFuture.failedFuture(error);
             }
+            Metrics.increment(METRICS_PREFIX + ".snapshot.fallback");
+            return CompletableFuture.completedFuture(snapshot.getPacking());
+        });
+    }
 
-            return objectMapper.readValue(response.body(), PackingResponseDTO.class);
+    public CompletableFuture<Integer> getTotalPackingWeightAsync(String category) {
+        return getPackingItemsAsync(category).thenApply(PackingService::totalWeight);
+    }
 
-        } catch (IOException | InterruptedException e) {
-            throw new RuntimeException("Error fetching packing items: " + e.getMessage(), e);
+    public PackingResponseDTO getPackingItems(String category) {
+        try {
+            return getPackingItemsAsync(category).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException("Error fetching packing items: " + e.getCause().getMessage(), e.getCause());
         }
     }
 
     public int getTotalPackingWeight(String category) {
-        PackingResponseDTO packingResponse = getPackingItems(category);
+        return totalWeight(getPackingItems(category));
+    }
+
+    public static int totalWeight(PackingResponseDTO packingResponse) {
         return packingResponse.getItems().stream()
                 .mapToInt(item -> item.getWeightInGrams() * item.getQuantity())
                 .sum();
     }
+
+    public CircuitBreaker.State getCircuitState() {
+        return circuitBreaker.getState();
+    }
+
+    // OPEN if any open service has an open circuit, else HALF_OPEN if any is probing
+    private static CircuitBreaker.State worstCircuitState() {
+        CircuitBreaker.State worst = CircuitBreaker.State.CLOSED;
+        for (PackingService service : OPEN) {
+            CircuitBreaker.State state = service.getCircuitState();
+            if (state == CircuitBreaker.State.OPEN) {
+                return state;
+            }
+            if (state == CircuitBreaker.State.HALF_OPEN) {
+                worst = state;
+            }
+        }
+        return worst;
+    }
+
+    // Stops the HTTP, parse and snapshot threads once their work in flight is done
+    @Override
+    public void close() {
+        OPEN.remove(this);
+        httpExecutor.shutdown();
+        parseExecutor.shutdown();
+        if (snapshotStore != null) {
+            snapshotStore.close();
+        }
+    }
+
+    // Waits for the snapshot writes that were started so far
+    void flushSnapshots() {
+        if (snapshotStore != null) {
+            snapshotStore.flush();
+        }
+    }
+
+    // Snapshots are put in the cache as due for refresh: served at once, reloaded in the background
+    private void preWarmFromSnapshot() {
+        if (snapshotStore == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        snapshotStore.getAll().forEach((category, snapshot) -> {
+            Duration age = Duration.ofMillis(Math.max(0, now - snapshot.getSavedAtMillis()));
+            if (age.compareTo(MAX_STALE) < 0) {
+                cache.put(category, snapshot.getPacking(), age.compareTo(REFRESH_AFTER) < 0 ? REFRESH_AFTER : age);
+            }
+        });
+    }
+
+    // Uncached call to the packing API, optionally hedged. Good answers are written to the snapshot
+    private CompletableFuture<PackingResponseDTO> fetchPackingItemsAsync(String category) {
+        calls.incrementAndGet();
+        CompletableFuture<PackingResponseDTO> result = config.isHedgingEnabled()
+                ? hedgedCall(category)
+                : guardedCall(category);
+        if (snapshotStore == null) {
+            return result;
+        }
+        // Part of the chain, so the save is handed to the writer before any caller sees the list
+        return result.thenApply(packing -> {
+            snapshotStore.save(category, packing);
+            return packing;
+        });
+    }
+
+    // Sends a second call if the first has not answered within the hedge delay; the first success wins
+    private CompletableFuture<PackingResponseDTO> hedgedCall(String category) {
+        CompletableFuture<PackingResponseDTO> result = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(1);
+
+        guardedCall(category).whenComplete((packing, error) -> {
+            if (error == null) {
+                result.complete(packing);
+            } else if (pending.decrementAndGet() == 0) {
+                result.completeExceptionally(error);
+            }
+        });
+
+        CompletableFuture.delayedExecutor(hedgeDelayNanos(), TimeUnit.NANOSECONDS).execute(() -> {
+            if (result.isDone() || !tryAcquireHedge()) {
+                return;
+            }
+            pending.incrementAndGet();
+            Metrics.increment(METRICS_PREFIX + ".hedge.sent");
+            guardedCall(category).whenComplete((packing, error) -> {
+                if (error == null) {
+                    if (result.complete(packing)) {
+                        Metrics.increment(METRICS_PREFIX + ".hedge.won");
+                    }
+                } else if (pending.decrementAndGet() == 0) {
+                    result.completeExceptionally(error);
+                }
+            });
+        });
+        return result;
+    }
+
+    private long hedgeDelayNanos() {
+        if (latencyTracker.size() < MIN_LATENCY_SAMPLES) {
+            return config.getHedgeDelayWithoutSamples().toNanos();
+        }
+        return Math.max(latencyTracker.percentileNanos(config.getHedgePercentile()), config.getMinHedgeDelay().toNanos());
+    }
+
+    // Caps hedges to maxHedgeRatio of all calls so a slow upstream is not hit with twice the load
+    private boolean tryAcquireHedge() {
+        long sent = hedges.get();
+        while (sent + 1 <= config.getMaxHedgeRatio() * calls.get()) {
+            if (hedges.compareAndSet(sent, sent + 1)) {
+                return true;
+            }
+            sent = hedges.get();
+        }
+        Metrics.increment(METRICS_PREFIX + ".hedge.budget_exhausted");
+        return false;
+    }
+
+    // One call to the packing API, guarded by the bulkhead and the circuit breaker.
+    // Rejected calls fail fast with 503; the cache then serves a stale list if it has one
+    private CompletableFuture<PackingResponseDTO> guardedCall(String category) {
+        if (!bulkhead.tryAcquire()) {
+            return CompletableFuture.failedFuture(new ApiException(503, "Too many concurrent calls to the packing API"));
+        }
+        if (!circuitBreaker.tryAcquirePermission()) {
+            bulkhead.release();
+            return CompletableFuture.failedFuture(new ApiException(503, "Packing API is unavailable (circuit open)"));
+        }
+
+        long start = System.nanoTime();
+        CompletableFuture<PackingResponseDTO> result;
+        try {
+            result = sendAsync(category);
+        } catch (RuntimeException e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        return result.whenComplete((packing, error) -> {
+            bulkhead.release();
+            if (error == null) {
+                latencyTracker.record(System.nanoTime() - start);
+                circuitBreaker.onSuccess();
+            } else {
+                if (isTimeout(error) || isTimeout(error.getCause())) {
+                    Metrics.increment(METRICS_PREFIX + ".timeouts");
+                }
+                circuitBreaker.onError();
+            }
+        });
+    }
+
+    private static boolean isTimeout(Throwable error) {
+        return error instanceof HttpTimeoutException || error instanceof TimeoutException;
+    }
+
+    // sendAsync does not hold a thread while waiting on the upstream.
+    // The body is parsed straight from the (gzip) stream, without copying it into a String first.
+    // The request timeout only covers the wait for the headers, so the whole call is bounded as well: when a
+    // body trickles in past the timeout the call fails (the bulkhead slot is freed, the breaker counts it),
+    // the parse thread blocked on the stream is interrupted and the stream is closed
+    private CompletableFuture<PackingResponseDTO> sendAsync(String category) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
+                .uri(URI.create(config.getBaseUrl() + category))
+                .timeout(config.getRequestTimeout())
+                .GET();
+        if (config.isGzip()) {
+            builder.header("Accept-Encoding", "gzip");
+        }
+
+        CompletableFuture<PackingResponseDTO> result = new CompletableFuture<>();
+        client.sendAsync(builder.build(), HttpResponse.BodyHandlers.ofInputStream()).whenComplete((response, error) -> {
+            if (error != null) {
+                result.completeExceptionally(error);
+                return;
+            }
+            Future<?> parsing;
+            try {
+                parsing = parseExecutor.submit(() -> {
+                    try {
+                        result.complete(parse(response));
+                    } catch (RuntimeException e) {
+                        result.completeExceptionally(e);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                closeBody(response);
+                result.completeExceptionally(e);
+                return;
+            }
+            result.whenComplete((packing, failure) -> {
+                if (failure != null) {
+                    parsing.cancel(true);
+                    closeBody(response);
+                }
+            });
+        });
+        return result.orTimeout(config.getRequestTimeout().toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private static void closeBody(HttpResponse<InputStream> response) {
+        try {
+            response.body().close();
+        } catch (IOException e) {
+            // the call has failed already
+        }
+    }
+
+    private PackingResponseDTO parse(HttpResponse<InputStream> response) {
+        try (InputStream body = decode(response)) {
+            if (response.statusCode() != 200) {
+                throw new RuntimeException("Failed to fetch packing items: HTTP " + response.statusCode());
+            }
+            return packingReader.readValue(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error parsing packing items: " + e.getMessage(), e);
+        }
+    }
+
+    private static InputStream decode(HttpResponse<InputStream> response) throws IOException {
+        boolean gzipped = response.headers().firstValue("Content-Encoding")
+                .map(encoding -> encoding.equalsIgnoreCase("gzip"))
+                .orElse(false);
+        return gzipped ? new GZIPInputStream(response.body()) : response.body();
+    }
 }
@@ -0,0 +1,152 @@
+package app.services;
+
+import app.dtos.PackingResponseDTO;
+import app.utils.JsonCodec;
+import app.utils.NamedThreadFactory;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Last good packing list per category, kept in an append-only JSON-lines file.
+ * Loaded at startup to pre-warm the cache, and used as a fallback while the packing API is down.
+ * Writes happen on a background thread. The file is compacted to one line per category once it has
+ * grown past COMPACT_AFTER_RECORDS lines.
+ */
+public class PackingSnapshotStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(PackingSnapshotStore.class);
+    private static final int COMPACT_AFTER_RECORDS = 100;
+
+    private final Path file;
+    private final Map<String, Snapshot> latest = new ConcurrentHashMap<>();
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(new NamedThreadFactory("packing-snapshot", true));
+    private int records; // only touched by the writer thread after load()
+
+    public PackingSnapshotStore(Path file) {
+        this.file = file;
+        load();
+    }
+
+    public Map<String, Snapshot> getAll() {
+        return Map.copyOf(latest);
+    }
+
+    public Snapshot get(String category) {
+        return latest.get(category);
+    }
+
+    public void save(String category, PackingResponseDTO packing) {
+        Snapshot snapshot = new Snapshot(packing, System.currentTimeMillis());
+        latest.put(category, snapshot);
+        writer.execute(() -> append(category, snapshot));
+    }
+
+    // Waits until the saves handed to the writer so far are on disk
+    public void flush() {
+        try {
+            writer.submit(() -> { }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            logger.warn("Could not flush packing snapshot {}: {}", file, e.getMessage());
+        }
+    }
+
+    // Writes what is still queued, then stops the writer thread
+    public void close() {
+        writer.shutdown();
+    }
+
+    private void load() {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try {
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            for (String line : lines) {
+                try {
+                    JsonNode node = JsonCodec.mapper().readTree(line);
+                    PackingResponseDTO packing = JsonCodec.PACKING_RESPONSE_READER.readValue(node.get("packing"));
+                    latest.put(node.get("category").asText(), new Snapshot(packing, node.get("savedAt").asLong()));
+                } catch (Exception e) {
+                    // A torn last line after a crash, skip it
+                    logger.warn("Skipping unreadable packing snapshot line in {}", file);
+                }
+            }
+            records = lines.size();
+            logger.info("Loaded packing snapshots for {} categories from {}", latest.size(), file);
+        } catch (IOException e) {
+            logger.warn("Could not read packing snapshot {}: {}", file, e.getMessage());
+        }
+    }
+
+    private void append(String category, Snapshot snapshot) {
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            Files.write(file, List.of(toLine(category, snapshot)), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            if (++records >= COMPACT_AFTER_RECORDS) {
+                compact();
+            }
+        } catch (IOException e) {
+            logger.warn("Could not write packing snapshot {}: {}", file, e.getMessage());
+        }
+    }
+
+    // Rewrites the file with only the newest line per category and swaps it in atomically
+    private void compact() throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, Snapshot> entry : latest.entrySet()) {
+                out.write(toLine(entry.getKey(), entry.getValue()));
+                out.newLine();
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        records = latest.size();
+    }
+
+    private static String toLine(String category, Snapshot snapshot) {
+        ObjectNode node = JsonCodec.mapper().createObjectNode()
+                .put("category", category)
+                .put("savedAt", snapshot.getSavedAtMillis());
+        node.set("packing", JsonCodec.mapper().valueToTree(snapshot.getPacking()));
+        return node.toString();
+    }
+
+    public static final class Snapshot {
+        private final PackingResponseDTO packing;
+        private final long savedAtMillis;
+
+        public Snapshot(PackingResponseDTO packing, long savedAtMillis) {
+            this.packing = packing;
+            this.savedAtMillis = savedAtMillis;
+        }
+
+        public PackingResponseDTO getPacking() {
+            return packing;
+        }
+
+        public long getSavedAtMillis() {
+            return savedAtMillis;
+        }
+    }
+}
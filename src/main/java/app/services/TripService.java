@@ -1,27 +1,53 @@
 package app.services;
 
+import app.config.AppSettings;
 import app.daos.GuideDAO;
 import app.daos.TripDAO;
+import app.dtos.MultiGetDTO;
+import app.dtos.PackingWeightsDTO;
 import app.dtos.TripDTO;
 import app.entities.Guide;
 import app.entities.Trip;
 import app.enums.Category;
 import app.exceptions.ApiException;
 import app.mappers.TripMapper;
+import app.utils.Deadline;
+import app.utils.FieldSelection;
+import app.utils.NamedThreadFactory;
 import jakarta.persistence.EntityManagerFactory;
 
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 public class TripService {
     private final TripDAO tripDAO;
     private final GuideDAO guideDAO;
     private final PackingService packingService;
+    // The blocking DAO calls behind the async endpoints run here, so Jetty request threads are released while
+    // they wait. Only DAO work: the packing leg is non-blocking (sendAsync) and never holds one of these threads
+    private final ExecutorService ioExecutor;
+
     public TripService(EntityManagerFactory emf, PackingService packingService) {
+        this(emf, packingService, newIoExecutor());
+    }
+    TripService(EntityManagerFactory emf, PackingService packingService, ExecutorService ioExecutor) {
         this.tripDAO = new TripDAO(emf);
         this.guideDAO = new GuideDAO(emf);
         this.packingService = packingService;
+        this.ioExecutor = ioExecutor;
     }
     public TripService(EntityManagerFactory emf) {
         this(emf, new PackingService());
@@ -50,6 +76,37 @@ public class TripService {
                 .map(TripMapper::toDTO)
                 .collect(Collectors.toList());
     }
+    // Multi-get: one query for all ids, returned in request order with the missing ids reported
+    public MultiGetDTO<TripDTO> getByIds(List<Integer> ids) {
+        Map<Integer, Trip> found = tripDAO.getByIds(ids).stream()
+                .collect(Collectors.toMap(Trip::getId, Function.identity()));
+        List<TripDTO> items = new ArrayList<>(found.size());
+        List<Integer> missingIds = new ArrayList<>();
+        for (Integer id : ids) {
+            Trip trip = found.get(id);
+            if (trip != null) {
+                items.add(TripMapper.toDTO(trip));
+            } else {
+                missingIds.add(id);
+            }
+        }
+        return new MultiGetDTO<>(items, missingIds);
+    }
+    // Sparse fieldsets: only the requested columns are selected and returned
+    public List<Map<String, Object>> getAll(List<String> fields) {
+        return tripDAO.getAllProjected(fields, null).stream()
+                .map(tuple -> FieldSelection.toMap(tuple, fields))
+                .collect(Collectors.toList());
+    }
+    public Map<String, Object> getById(int id, List<String> fields) {
+        return FieldSelection.toMap(tripDAO.getByIdProjected(id, fields), fields);
+    }
+    public List<Map<String, Object>> filterTripsByCategory(String category, List<String> fields) {
+        Category categoryEnum = parseCategory(category);
+        return tripDAO.getAllProjected(fields, categoryEnum).stream()
+                .map(tuple -> FieldSelection.toMap(tuple, fields))
+                .collect(Collectors.toList());
+    }
     public TripDTO update(TripDTO tripDTO, int id) {
         Trip existing = tripDAO.getById(id);
         if (existing == null) {
@@ -90,12 +147,7 @@ public class TripService {
         return TripMapper.toDTO(updated);
     }
     public List<TripDTO> filterTripsByCategory(String category) {
-        Category categoryEnum;
-        try {
-            categoryEnum = Category.valueOf(category.toUpperCase());
-        }catch (IllegalArgumentException e) {
-            throw new ApiException(400, "Invalid category: " + category);
-        }
+        Category categoryEnum = parseCategory(category);
         List<Trip> allTrips = tripDAO.getAll();
         List<TripDTO> filtered = allTrips.stream()
                 .filter(trip -> trip.getCategory() == categoryEnum)
@@ -103,6 +155,13 @@ public class TripService {
                 .collect(Collectors.toList());
         return filtered;
     }
+    private Category parseCategory(String category) {
+        try {
+            return Category.valueOf(category.toUpperCase());
+        }catch (IllegalArgumentException e) {
+            throw new ApiException(400, "Invalid category: " + category);
+        }
+    }
     public Map<Integer,Double> getTotalPriceByGuide(){
         return tripDAO.getAll().stream()
                 .collect(Collectors.groupingBy(
@@ -126,4 +185,89 @@ public class TripService {
         return packingService.getTotalPackingWeight(trip.getCategory().name());
     }
 
+    // Async variants used by the packing endpoints (ctx.future).
+    // The trip is loaded once on the IO pool and the packing list is composed from its category; the packing
+    // list is nearly always a cache hit, so this costs one query and no thread while the upstream is called.
+    // The request's deadline is carried to the worker threads and bounds the whole result
+    public CompletableFuture<TripDTO> getByIdWithPackingAsync(int tripId) {
+        Deadline deadline = Deadline.current();
+        return withinDeadline(deadline, supplyAsync(() -> tripDAO.getById(tripId))
+                .thenCompose(trip -> Deadline.callWith(deadline,
+                        () -> packingService.getPackingItemsAsync(trip.getCategory().name()))
+                        .thenApply(packing -> {
+                            TripDTO tripDTO = TripMapper.toDTO(trip);
+                            tripDTO.setPackingItems(packing.getItems());
+                            return tripDTO;
+                        })));
+    }
+
+    public CompletableFuture<Integer> getTotalPackingWeightAsync(int tripId) {
+        Deadline deadline = Deadline.current();
+        return withinDeadline(deadline, supplyAsync(() -> tripDAO.getCategoryById(tripId))
+                .thenCompose(category -> Deadline.callWith(deadline,
+                        () -> packingService.getTotalPackingWeightAsync(category.name()))));
+    }
+
+    // Packing weights for many trips: one query for their categories and one packing lookup per distinct
+    // category, so the work grows with the number of categories rather than the number of trips
+    public CompletableFuture<PackingWeightsDTO> getPackingWeightsAsync(List<Integer> tripIds) {
+        Deadline deadline = Deadline.current();
+        return withinDeadline(deadline, supplyAsync(() -> tripDAO.getCategoriesByIds(tripIds))
+                .thenCompose(categoriesByTrip -> Deadline.callWith(deadline, () -> {
+                    Map<Category, CompletableFuture<Integer>> weightByCategory = new EnumMap<>(Category.class);
+                    for (Category category : new HashSet<>(categoriesByTrip.values())) {
+                        weightByCategory.put(category, packingService.getTotalPackingWeightAsync(category.name()));
+                    }
+                    return CompletableFuture.allOf(weightByCategory.values().toArray(new CompletableFuture[0]))
+                            .thenApply(ignored -> toPackingWeights(tripIds, categoriesByTrip, weightByCategory));
+                })));
+    }
+
+    private static PackingWeightsDTO toPackingWeights(List<Integer> tripIds, Map<Integer, Category> categoriesByTrip,
+                                                      Map<Category, CompletableFuture<Integer>> weightByCategory) {
+        Map<Integer, Integer> weights = new LinkedHashMap<>();
+        List<Integer> missingIds = new ArrayList<>();
+        long totalWeight = 0;
+        for (Integer tripId : tripIds) {
+            Category category = categoriesByTrip.get(tripId);
+            if (category == null) {
+                missingIds.add(tripId);
+                continue;
+            }
+            int weight = weightByCategory.get(category).join(); // already completed
+            weights.put(tripId, weight);
+            totalWeight += weight;
+        }
+        return new PackingWeightsDTO(weights, totalWeight, missingIds);
+    }
+
+    // Also closes the packing client it was given, so its pools stop with the service
+    public void close() {
+        ioExecutor.shutdown();
+        packingService.close();
+    }
+
+    // One thread per database connection: more threads would only wait for a connection.
+    // Bounded queue: when it is full the request is rejected with 503 instead of piling up
+    private static ExecutorService newIoExecutor() {
+        int threads = AppSettings.get().getDbPoolSize();
+        return new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(threads * 10),
+                new NamedThreadFactory("trip-io", true));
+    }
+
+    // Runs on ioExecutor with the caller's deadline. Work whose deadline passed while it was queued is not started
+    private <T> CompletableFuture<T> supplyAsync(Supplier<T> supplier) {
+        Deadline deadline = Deadline.current();
+        try {
+            return CompletableFuture.supplyAsync(() -> Deadline.callWith(deadline, supplier), ioExecutor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(new ApiException(503, "Server is busy, try again later"));
+        }
+    }
+
+    private static <T> CompletableFuture<T> withinDeadline(Deadline deadline, CompletableFuture<T> future) {
+        return deadline != null ? deadline.bound(future) : future;
+    }
+
 }
@@ -0,0 +1,107 @@
+package app.utils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limits the number of requests in flight, with a limit that follows the observed latency
+ * (gradient limiter in the style of Netflix' Gradient2, with a multiplicative decrease on timeouts).
+ * - longRtt: slow moving average of the response time, the "healthy" latency
+ * - shortRtt: fast moving average, the latency right now
+ * - gradient = longRtt / shortRtt (capped to 0.5..1): below 1 when requests get slower, i.e. they queue
+ *   somewhere (database pool, packing API), so the limit shrinks; at 1 the limit grows by sqrt(limit)
+ * A sample only raises the limit when the limit is actually used (at least half of it in flight).
+ * Only NORMAL requests are sampled: LOW routes (analytics, bulk work, batch sub-requests) and CRITICAL ones
+ * (BCrypt-bound login) take long by design and would read as queueing. A sample is also capped at
+ * OUTLIER_CAP times longRtt, so one very slow request nudges shortRtt instead of halving the limit.
+ * Priorities get a share of the limit: LOW is shed first, then NORMAL; CRITICAL has headroom above the limit.
+ * Acquire is a lock-free CAS; the limit update on release takes a short lock.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    public enum Priority {
+        CRITICAL(1.2), // health check, login, metrics
+        NORMAL(1.0),   // reads and user requests
+        LOW(0.7);      // admin writes, analytics, batch
+
+        private final double share;
+
+        Priority(double share) {
+            this.share = share;
+        }
+    }
+
+    private static final double LONG_RTT_ALPHA = 1.0 / 500;
+    private static final double SHORT_RTT_ALPHA = 1.0 / 10;
+    private static final double TOLERANCE = 1.5;   // latency may rise 50% before the limit shrinks
+    private static final double SMOOTHING = 0.2;
+    private static final double BACKOFF = 0.9;     // on a timeout
+    private static final double OUTLIER_CAP = 2 * TOLERANCE;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double limit;
+
+    // Guarded by this
+    private double longRtt;
+    private double shortRtt;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    public boolean tryAcquire(Priority priority) {
+        int allowed = Math.max(1, (int) (limit * priority.share));
+        while (true) {
+            int current = inFlight.get();
+            if (current >= allowed) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    // Called once for every successful tryAcquire, with the same priority. timedOut: the request ran out of time (504)
+    public void release(Priority priority, long rttNanos, boolean timedOut) {
+        int inFlightNow = inFlight.getAndDecrement();
+        if (priority != Priority.NORMAL) {
+            return;
+        }
+        synchronized (this) {
+            if (timedOut) {
+                limit = Math.max(minLimit, limit * BACKOFF);
+                return;
+            }
+            if (longRtt == 0) {
+                longRtt = rttNanos;
+                shortRtt = rttNanos;
+                return;
+            }
+            double sample = Math.min(rttNanos, longRtt * OUTLIER_CAP);
+            shortRtt += (sample - shortRtt) * SHORT_RTT_ALPHA;
+            longRtt += (sample - longRtt) * LONG_RTT_ALPHA;
+            // After a lasting slowdown, let the baseline come down again instead of shrinking forever
+            if (longRtt > shortRtt * 2) {
+                longRtt *= 0.95;
+            }
+            if (inFlightNow < limit / 2) {
+                return; // the limit is not what holds requests back, so their latency says nothing about it
+            }
+            double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRtt / shortRtt));
+            double newLimit = limit * gradient + Math.sqrt(limit);
+            limit = Math.max(minLimit, Math.min(maxLimit, limit * (1 - SMOOTHING) + newLimit * SMOOTHING));
+        }
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
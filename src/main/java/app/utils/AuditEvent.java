@@ -0,0 +1,32 @@
+package app.utils;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Instant;
+
+// One line in the audit log: an access (every request) or a change (create/update/delete, login)
+@Getter
+@Builder
+@ToString
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class AuditEvent {
+    private final Instant time;
+    private final String type;
+    private final String user;
+    private final String ip;
+
+    // access
+    private final String method;
+    private final String route;
+    private final String path;
+    private final Integer status;
+    private final Long latencyMicros;
+
+    // change
+    private final String action;
+    private final String entity;
+    private final String entityId;
+}
@@ -0,0 +1,170 @@
+package app.utils;
+
+import app.config.AppSettings;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Access and audit log as JSON lines in an append-only file.
+ * Request threads only put an AuditEvent into a lock-free RingBuffer; one background thread drains it in
+ * batches, serializes and writes them, and flushes once per batch. Nothing on the request path touches
+ * the file or waits: when the buffer is full the event is dropped and counted (audit.dropped).
+ * When the file would grow past maxBytes it is rotated: audit.log -> audit.log.1 -> ... -> audit.log.N.
+ */
+public class AuditLog implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditLog.class);
+    private static final ObjectWriter WRITER = JsonCodec.writerFor(AuditEvent.class);
+    private static final int BATCH_SIZE = 512;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private static volatile AuditLog instance;
+
+    private final RingBuffer<AuditEvent> buffer;
+    private final Path file;
+    private final long maxBytes;
+    private final int keepFiles;
+    private final Thread writerThread;
+    private volatile boolean running = true;
+
+    private OutputStream out;
+    private long written;
+
+    public AuditLog(Path file, long maxBytes, int keepFiles, int capacity) {
+        this.buffer = new RingBuffer<>(capacity);
+        this.file = file;
+        this.maxBytes = maxBytes;
+        this.keepFiles = keepFiles;
+        this.writerThread = new NamedThreadFactory("audit-writer", true).newThread(this::run);
+        writerThread.start();
+    }
+
+    // The application's log, configured by AUDIT_LOG_PATH / AUDIT_LOG_MAX_MB / AUDIT_LOG_FILES
+    public static AuditLog get() {
+        AuditLog log = instance;
+        if (log == null) {
+            synchronized (AuditLog.class) {
+                if (instance == null) {
+                    AppSettings settings = AppSettings.get();
+                    instance = new AuditLog(Path.of(settings.getAuditLogPath()),
+                            settings.getAuditLogMaxMb() * 1024L * 1024L, settings.getAuditLogFiles(), 8192);
+                    Metrics.gauge("audit.buffered", instance.buffer::size);
+                    Runtime.getRuntime().addShutdownHook(new Thread(instance::close, "audit-shutdown"));
+                }
+                log = instance;
+            }
+        }
+        return log;
+    }
+
+    public static void record(AuditEvent event) {
+        get().offer(event);
+    }
+
+    public boolean offer(AuditEvent event) {
+        if (buffer.offer(event)) {
+            return true;
+        }
+        Metrics.increment("audit.dropped");
+        return false;
+    }
+
+    // Stops the writer after it has written what is still buffered
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        List<AuditEvent> batch = new ArrayList<>(BATCH_SIZE);
+        while (running || buffer.size() > 0) {
+            buffer.drainTo(batch::add, BATCH_SIZE);
+            if (batch.isEmpty()) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+            write(batch);
+            batch.clear();
+        }
+        closeFile();
+    }
+
+    private void write(List<AuditEvent> batch) {
+        try {
+            if (out == null) {
+                openFile();
+            }
+            for (AuditEvent event : batch) {
+                byte[] line = (WRITER.writeValueAsString(event) + "\n").getBytes(StandardCharsets.UTF_8);
+                if (written > 0 && written + line.length > maxBytes) {
+                    rotate();
+                }
+                out.write(line);
+                written += line.length;
+            }
+            out.flush();
+            Metrics.counter("audit.written").add(batch.size());
+        } catch (IOException | RuntimeException e) {
+            // The batch is lost, the file is reopened for the next one
+            Metrics.counter("audit.write_errors").add(batch.size());
+            logger.warn("Could not write {} audit events to {}: {}", batch.size(), file, e.getMessage());
+            closeFile();
+        }
+    }
+
+    private void openFile() throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        out = new BufferedOutputStream(Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND), 64 * 1024);
+        written = Files.size(file);
+    }
+
+    private void rotate() throws IOException {
+        closeFile();
+        Files.deleteIfExists(rotated(keepFiles));
+        for (int i = keepFiles - 1; i >= 1; i--) {
+            if (Files.exists(rotated(i))) {
+                Files.move(rotated(i), rotated(i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Files.move(file, rotated(1), StandardCopyOption.REPLACE_EXISTING);
+        openFile();
+    }
+
+    private Path rotated(int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+
+    private void closeFile() {
+        if (out == null) {
+            return;
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            logger.warn("Could not close {}: {}", file, e.getMessage());
+        }
+        out = null;
+    }
+}
@@ -0,0 +1,35 @@
+package app.utils;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Caps the number of concurrent calls to a dependency.
+ * Callers that do not get a permit are rejected immediately instead of queueing.
+ */
+public class Bulkhead {
+    private final String name;
+    private final int maxConcurrentCalls;
+    private final Semaphore permits;
+
+    public Bulkhead(String name, int maxConcurrentCalls) {
+        this.name = name;
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.permits = new Semaphore(maxConcurrentCalls);
+    }
+
+    public boolean tryAcquire() {
+        if (permits.tryAcquire()) {
+            return true;
+        }
+        Metrics.increment(name + ".bulkhead.rejected");
+        return false;
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    public int inFlight() {
+        return maxConcurrentCalls - permits.availablePermits();
+    }
+}
@@ -0,0 +1,119 @@
+package app.utils;
+
+import app.exceptions.ApiException;
+import jakarta.persistence.Query;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * The time budget of the request being handled.
+ * It is set per request in a before-handler (see RequestDeadlines) and lives in a ThreadLocal, so DAOs and
+ * PackingService can pick it up without extra parameters. Work handed to other threads must take it along
+ * with callWith(). When the budget is used up the request fails with 504 and no further work is started.
+ */
+public final class Deadline {
+
+    public static final String QUERY_TIMEOUT_HINT = "jakarta.persistence.query.timeout";
+
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+    private final long expiresAtNanos;
+
+    private Deadline(long expiresAtNanos) {
+        this.expiresAtNanos = expiresAtNanos;
+    }
+
+    public static Deadline after(Duration budget) {
+        return new Deadline(System.nanoTime() + budget.toNanos());
+    }
+
+    public Duration remaining() {
+        return Duration.ofNanos(Math.max(0, expiresAtNanos - System.nanoTime()));
+    }
+
+    public boolean isExpired() {
+        return expiresAtNanos - System.nanoTime() <= 0;
+    }
+
+    public void check() {
+        if (isExpired()) {
+            throw exceeded();
+        }
+    }
+
+    public static ApiException exceeded() {
+        Metrics.increment("deadline.exceeded");
+        return new ApiException(504, "Request deadline exceeded");
+    }
+
+    // Null when no request is being handled on this thread, e.g. a background cache refresh
+    public static Deadline current() {
+        return CURRENT.get();
+    }
+
+    public static void set(Deadline deadline) {
+        CURRENT.set(deadline);
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    // Runs the supplier with the given deadline as the current one, on whatever thread this is called from
+    public static <T> T callWith(Deadline deadline, Supplier<T> supplier) {
+        Deadline previous = CURRENT.get();
+        CURRENT.set(deadline);
+        try {
+            if (deadline != null) {
+                deadline.check();
+            }
+            return supplier.get();
+        } finally {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    // The smaller of the given timeout and what is left of the current deadline
+    public static Duration cap(Duration timeout) {
+        Deadline deadline = CURRENT.get();
+        if (deadline == null) {
+            return timeout;
+        }
+        deadline.check();
+        Duration remaining = deadline.remaining();
+        return remaining.compareTo(timeout) < 0 ? remaining : timeout;
+    }
+
+    // Sets the JPA query timeout to the remaining budget. JDBC statement timeouts are whole seconds,
+    // so the hint is rounded up to the next second; the deadline check before the query is exact
+    public static <Q extends Query> Q withTimeout(Q query) {
+        Deadline deadline = CURRENT.get();
+        if (deadline != null) {
+            deadline.check();
+            long seconds = Math.max(1, (deadline.remaining().toMillis() + 999) / 1000);
+            query.setHint(QUERY_TIMEOUT_HINT, (int) TimeUnit.SECONDS.toMillis(seconds));
+        }
+        return query;
+    }
+
+    // Fails with 504 once the deadline passes, so the caller stops waiting. The given future is left alone,
+    // it may be shared with other requests (single-flight cache loads); its own timeouts end the work
+    public <T> CompletableFuture<T> bound(CompletableFuture<T> future) {
+        long remainingNanos = expiresAtNanos - System.nanoTime();
+        if (remainingNanos <= 0) {
+            return CompletableFuture.failedFuture(exceeded());
+        }
+        return future.copy()
+                .orTimeout(remainingNanos, TimeUnit.NANOSECONDS)
+                .exceptionallyCompose(error -> CompletableFuture.failedFuture(
+                        error instanceof TimeoutException ? exceeded() : error));
+    }
+}
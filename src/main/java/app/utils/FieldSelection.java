@@ -0,0 +1,54 @@
+package app.utils;
+
+import app.exceptions.ApiException;
+import jakarta.persistence.Tuple;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Helpers for sparse fieldsets (?fields=id,name,price).
+ * The requested names are validated against the fields a DAO can project,
+ * and the projected tuples are turned into maps holding only those fields.
+ */
+public class FieldSelection {
+
+    private FieldSelection() {
+    }
+
+    /**
+     * Parses a comma separated fields parameter.
+     * Returns null when no fields were requested, so callers can fall back to the full DTO.
+     */
+    public static List<String> parse(String fieldsParam, Set<String> allowedFields) {
+        if (fieldsParam == null || fieldsParam.isBlank()) {
+            return null;
+        }
+        List<String> fields = new ArrayList<>();
+        for (String raw : fieldsParam.split(",")) {
+            String field = raw.trim();
+            if (field.isEmpty() || fields.contains(field)) {
+                continue;
+            }
+            if (!allowedFields.contains(field)) {
+                throw new ApiException(400, "Unknown field: " + field + ". Allowed fields are: " + allowedFields);
+            }
+            fields.add(field);
+        }
+        if (fields.isEmpty()) {
+            throw new ApiException(400, "The fields query parameter must name at least one field");
+        }
+        return fields;
+    }
+
+    public static Map<String, Object> toMap(Tuple tuple, List<String> fields) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (String field : fields) {
+            result.put(field, tuple.get(field));
+        }
+        return result;
+    }
+}
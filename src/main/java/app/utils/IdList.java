@@ -0,0 +1,68 @@
+package app.utils;
+
+import app.exceptions.ApiException;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Parses id lists such as ?ids=1,2,3 for the multi-get endpoints.
+ * Request order is kept and duplicates are dropped.
+ */
+public class IdList {
+
+    public static final int MAX_IDS = 1000;
+
+    private IdList() {
+    }
+
+    public static List<Integer> parse(String idsParam) {
+        if (idsParam == null || idsParam.isBlank()) {
+            throw new ApiException(400, "The ids query parameter must contain at least one id");
+        }
+        Set<Integer> ids = new LinkedHashSet<>();
+        for (String raw : idsParam.split(",")) {
+            String value = raw.trim();
+            if (value.isEmpty()) {
+                continue;
+            }
+            try {
+                ids.add(Integer.parseInt(value));
+            } catch (NumberFormatException e) {
+                throw new ApiException(400, "Invalid id: " + value);
+            }
+        }
+        return validated(ids);
+    }
+
+    // Same rules for ids sent in a request body: order kept, duplicates and nulls dropped
+    public static List<Integer> of(List<Integer> idList) {
+        Set<Integer> ids = new LinkedHashSet<>();
+        if (idList != null) {
+            idList.stream().filter(Objects::nonNull).forEach(ids::add);
+        }
+        return validated(ids);
+    }
+
+    private static List<Integer> validated(Set<Integer> ids) {
+        if (ids.isEmpty()) {
+            throw new ApiException(400, "At least one id is required");
+        }
+        if (ids.size() > MAX_IDS) {
+            throw new ApiException(400, "Too many ids, max is " + MAX_IDS);
+        }
+        return new ArrayList<>(ids);
+    }
+
+    // Splits a list into chunks so IN (...) clauses stay below the driver's bind parameter limits
+    public static <T> List<List<T>> chunk(List<T> list, int chunkSize) {
+        List<List<T>> chunks = new ArrayList<>();
+        for (int i = 0; i < list.size(); i += chunkSize) {
+            chunks.add(list.subList(i, Math.min(i + chunkSize, list.size())));
+        }
+        return chunks;
+    }
+}
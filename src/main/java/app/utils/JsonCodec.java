@@ -0,0 +1,71 @@
+package app.utils;
+
+import app.dtos.PackingItemDTO;
+import app.dtos.PackingResponseDTO;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The one JSON codec of the application.
+ * Javalin, PackingService, the security classes and Utils all share this ObjectMapper,
+ * so it is configured once and its serializer caches stay warm.
+ * - JavaTimeModule for LocalTime etc. (written as ISO strings)
+ * - BlackbirdModule generates accessors with LambdaMetafactory instead of using reflection
+ * - ObjectReaders/ObjectWriters are cached per type, they are immutable and thread-safe
+ */
+public final class JsonCodec {
+
+    private static final ObjectMapper MAPPER = createMapper();
+
+    private static final Map<Type, ObjectReader> READERS = new ConcurrentHashMap<>();
+    private static final Map<Type, ObjectWriter> WRITERS = new ConcurrentHashMap<>();
+
+    // Readers for the packing API responses (PackingService, PackingSnapshotStore)
+    public static final ObjectReader PACKING_RESPONSE_READER = readerFor(PackingResponseDTO.class);
+    // Skips buyingOptions while parsing, so those objects are never allocated
+    public static final ObjectReader PACKING_RESPONSE_LEAN_READER = MAPPER.copy()
+            .addMixIn(PackingItemDTO.class, SkipBuyingOptions.class)
+            .readerFor(PackingResponseDTO.class);
+
+    private JsonCodec() {
+    }
+
+    private static ObjectMapper createMapper() {
+        return new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .registerModule(new BlackbirdModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false); // Ignore unknown properties in JSON
+    }
+
+    public static ObjectMapper mapper() {
+        return MAPPER;
+    }
+
+    public static ObjectReader readerFor(Type type) {
+        return READERS.computeIfAbsent(type, t -> MAPPER.readerFor(javaType(t)));
+    }
+
+    public static ObjectWriter writerFor(Type type) {
+        return WRITERS.computeIfAbsent(type, t -> MAPPER.writerFor(javaType(t)));
+    }
+
+    private static JavaType javaType(Type type) {
+        return MAPPER.getTypeFactory().constructType(type);
+    }
+
+    @JsonIgnoreProperties({"buyingOptions"})
+    private abstract static class SkipBuyingOptions {
+    }
+}
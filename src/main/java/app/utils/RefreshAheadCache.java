@@ -0,0 +1,144 @@
+package app.utils;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Small async cache for slow, rarely changing upstream data.
+ * - Younger than refreshAfter: served from memory.
+ * - Between refreshAfter and ttl: served from memory while a background reload runs (refresh-ahead).
+ * - Older than ttl or missing: the caller waits for a reload.
+ * - Concurrent loads of the same key share one loader call (single-flight).
+ * - If a reload fails, a value younger than maxStale is served instead (stale-if-error).
+ * - After a failed load, a key that still has a value is not reloaded again for failureBackoff, so an
+ *   upstream outage costs one attempt per backoff period instead of one per request.
+ */
+public class RefreshAheadCache<K, V> {
+
+    public static final Duration DEFAULT_FAILURE_BACKOFF = Duration.ofSeconds(30);
+
+    private final Function<K, CompletableFuture<V>> loader;
+    private final long refreshAfterNanos;
+    private final long ttlNanos;
+    private final long maxStaleNanos;
+    private final long failureBackoffNanos;
+    private final LongSupplier clock;
+
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Map<K, Long> failedAt = new ConcurrentHashMap<>();
+
+    public RefreshAheadCache(Function<K, CompletableFuture<V>> loader, Duration refreshAfter, Duration ttl, Duration maxStale) {
+        this(loader, refreshAfter, ttl, maxStale, DEFAULT_FAILURE_BACKOFF, System::nanoTime);
+    }
+
+    public RefreshAheadCache(Function<K, CompletableFuture<V>> loader, Duration refreshAfter, Duration ttl, Duration maxStale,
+                             Duration failureBackoff, LongSupplier clock) {
+        if (refreshAfter.compareTo(ttl) > 0 || ttl.compareTo(maxStale) > 0) {
+            throw new IllegalArgumentException("Expected refreshAfter <= ttl <= maxStale");
+        }
+        this.loader = loader;
+        this.refreshAfterNanos = refreshAfter.toNanos();
+        this.ttlNanos = ttl.toNanos();
+        this.maxStaleNanos = maxStale.toNanos();
+        this.failureBackoffNanos = failureBackoff.toNanos();
+        this.clock = clock;
+    }
+
+    public CompletableFuture<V> get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null) {
+            long now = clock.getAsLong();
+            long age = now - entry.loadedAt;
+            if (age < refreshAfterNanos) {
+                return CompletableFuture.completedFuture(entry.value);
+            }
+            if (age < ttlNanos) {
+                if (!backingOff(key, now)) {
+                    load(key); // refresh-ahead, failures keep the current value
+                }
+                return CompletableFuture.completedFuture(entry.value);
+            }
+            if (age < maxStaleNanos && backingOff(key, now)) {
+                return CompletableFuture.completedFuture(entry.value); // the last reload failed moments ago
+            }
+        }
+        return load(key).handle((value, error) -> {
+            if (error == null) {
+                return CompletableFuture.completedFuture(value);
+            }
+            if (entry != null && clock.getAsLong() - entry.loadedAt < maxStaleNanos) {
+                return CompletableFuture.completedFuture(entry.value);
+            }
+            return CompletableFuture.<V>failedFuture(error);
+        }).thenCompose(Function.identity());
+    }
+
+    // Stores a value as if it was loaded 'age' ago, e.g. when pre-warming from a snapshot
+    public void put(K key, V value, Duration age) {
+        entries.put(key, new Entry<>(value, clock.getAsLong() - age.toNanos()));
+    }
+
+    public void invalidate(K key) {
+        entries.remove(key);
+        failedAt.remove(key);
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+        failedAt.clear();
+    }
+
+    private boolean backingOff(K key, long now) {
+        Long failed = failedAt.get(key);
+        return failed != null && now - failed < failureBackoffNanos;
+    }
+
+    // Single-flight: only the first caller runs the loader, the rest share its future
+    private CompletableFuture<V> load(K key) {
+        CompletableFuture<V> existing = inFlight.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        CompletableFuture<V> promise = new CompletableFuture<>();
+        existing = inFlight.putIfAbsent(key, promise);
+        if (existing != null) {
+            return existing;
+        }
+        try {
+            loader.apply(key).whenComplete((value, error) -> {
+                if (error == null) {
+                    entries.put(key, new Entry<>(value, clock.getAsLong()));
+                    failedAt.remove(key);
+                } else {
+                    failedAt.put(key, clock.getAsLong());
+                }
+                inFlight.remove(key, promise);
+                if (error == null) {
+                    promise.complete(value);
+                } else {
+                    promise.completeExceptionally(error);
+                }
+            });
+        } catch (RuntimeException e) {
+            failedAt.put(key, clock.getAsLong());
+            inFlight.remove(key, promise);
+            promise.completeExceptionally(e);
+        }
+        return promise;
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long loadedAt;
+
+        private Entry(V value, long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
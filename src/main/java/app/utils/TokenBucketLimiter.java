@@ -0,0 +1,111 @@
+package app.utils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Token buckets per key (user name, client IP, ...): capacity tokens, refilled at refillPerSecond.
+ * Buckets are refilled lazily when they are used, so an idle bucket costs nothing but memory.
+ * Updates are guarded by a fixed set of striped locks picked by the key's hash, so two keys rarely
+ * contend and no lock object is created per bucket. Buckets that have been idle long enough to be full
+ * again are dropped by evictIdle(), which the owner calls periodically.
+ */
+public class TokenBucketLimiter {
+
+    private static final int STRIPES = 64; // power of two
+
+    private final String rejectedMetric;
+    private final int capacity;
+    private final double refillPerNano;
+    private final long idleNanos;
+    private final LongSupplier clock;
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final Object[] locks = new Object[STRIPES];
+
+    public TokenBucketLimiter(String name, int capacity, double refillPerSecond) {
+        this(name, capacity, refillPerSecond, System::nanoTime);
+    }
+
+    public TokenBucketLimiter(String name, int capacity, double refillPerSecond, LongSupplier clock) {
+        this.rejectedMetric = "ratelimit." + name + ".rejected";
+        this.capacity = capacity;
+        this.refillPerNano = refillPerSecond / 1_000_000_000.0;
+        // after this long a bucket is full again, so forgetting it changes nothing
+        this.idleNanos = (long) Math.ceil(capacity / refillPerNano);
+        this.clock = clock;
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new Object();
+        }
+        Metrics.gauge("ratelimit." + name + ".buckets", buckets::size);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public Result tryAcquire(String key) {
+        long now = clock.getAsLong();
+        Bucket bucket = buckets.computeIfAbsent(key, k -> new Bucket(capacity, now));
+        double tokens;
+        synchronized (locks[(key.hashCode() & 0x7fffffff) & (STRIPES - 1)]) {
+            tokens = Math.min(capacity, bucket.tokens + (now - bucket.updatedAt) * refillPerNano);
+            bucket.updatedAt = now;
+            if (tokens >= 1) {
+                bucket.tokens = tokens - 1;
+                return new Result(true, (int) bucket.tokens, secondsUntil(capacity - bucket.tokens));
+            }
+            bucket.tokens = tokens;
+        }
+        Metrics.increment(rejectedMetric);
+        return new Result(false, 0, secondsUntil(1 - tokens));
+    }
+
+    // Removes buckets that have refilled completely since they were last used
+    public void evictIdle() {
+        long now = clock.getAsLong();
+        buckets.values().removeIf(bucket -> now - bucket.updatedAt >= idleNanos);
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    private long secondsUntil(double missingTokens) {
+        return (long) Math.ceil(Math.max(0, missingTokens) / refillPerNano / 1_000_000_000.0);
+    }
+
+    private static final class Bucket {
+        private double tokens;
+        private volatile long updatedAt; // also read by evictIdle without the lock
+
+        private Bucket(double tokens, long updatedAt) {
+            this.tokens = tokens;
+            this.updatedAt = updatedAt;
+        }
+    }
+
+    public static final class Result {
+        private final boolean allowed;
+        private final int remaining;
+        private final long resetSeconds; // until the bucket is full again, or until the next token when rejected
+
+        private Result(boolean allowed, int remaining, long resetSeconds) {
+            this.allowed = allowed;
+            this.remaining = remaining;
+            this.resetSeconds = resetSeconds;
+        }
+
+        public boolean isAllowed() {
+            return allowed;
+        }
+
+        public int getRemaining() {
+            return remaining;
+        }
+
+        public long getResetSeconds() {
+            return resetSeconds;
+        }
+    }
+}
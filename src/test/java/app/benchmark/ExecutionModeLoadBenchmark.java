@@ -0,0 +1,144 @@
+package app.benchmark;
+
+import app.config.ApplicationConfig;
+import app.config.ExecutionMode;
+import app.config.HibernateConfig;
+import app.entities.Guide;
+import app.entities.Trip;
+import app.enums.Category;
+import io.javalin.Javalin;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares Javalin on platform threads with virtual threads under the same load.
+ * Starts the app in test mode (Testcontainers DB, mock packing service, no security) once per mode and runs
+ * CLIENTS concurrent clients against GET /trips/{id} and GET /trips for DURATION, then prints throughput,
+ * latency percentiles and errors. Try different DB_POOL_SIZE values, the pool should be the limit in VIRTUAL mode.
+ * VIRTUAL needs Java 21 (the server refuses to start with it on older JDKs), so it is skipped there.
+ * Not a JUnit test - run main() from the IDE or with exec:java on the test classpath (needs Docker).
+ */
+public class ExecutionModeLoadBenchmark {
+
+    private static final int PORT = 7788;
+    private static final int CLIENTS = 400;
+    private static final int TRIPS = 200;
+    private static final Duration WARMUP = Duration.ofSeconds(5);
+    private static final Duration DURATION = Duration.ofSeconds(20);
+
+    public static void main(String[] args) throws Exception {
+        HibernateConfig.setTest(true);
+        EntityManagerFactory emf = HibernateConfig.getEntityManagerFactoryForTest();
+        populate(emf);
+
+        for (ExecutionMode mode : ExecutionMode.values()) {
+            if (!mode.isAvailable()) {
+                System.out.printf("%-8s: skipped, needs Java 21 (running on Java %d)%n", mode, Runtime.version().feature());
+                continue;
+            }
+            ApplicationConfig.setExecutionMode(mode);
+            Javalin app = ApplicationConfig.startServer(PORT, emf, true);
+            try {
+                run(mode + " warm-up", WARMUP, false);
+                run(mode.name(), DURATION, true);
+            } finally {
+                app.stop();
+            }
+        }
+        emf.close();
+    }
+
+    private static void run(String name, Duration duration, boolean print) throws Exception {
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newFixedThreadPool(16))
+                .build();
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        long end = System.nanoTime() + duration.toNanos();
+        AtomicLong errors = new AtomicLong();
+
+        List<Future<long[]>> results = new ArrayList<>();
+        for (int c = 0; c < CLIENTS; c++) {
+            int clientId = c;
+            results.add(clients.submit(() -> {
+                long[] latencies = new long[1 << 16];
+                int count = 0;
+                for (int i = 0; System.nanoTime() < end; i++) {
+                    String path = i % 10 == 0 ? "/trips" : "/trips/" + (1 + (clientId + i) % TRIPS);
+                    HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + PORT + "/api/v1" + path))
+                            .timeout(Duration.ofSeconds(30))
+                            .GET()
+                            .build();
+                    long start = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() >= 400) {
+                            errors.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                    }
+                    if (count == latencies.length) {
+                        latencies = Arrays.copyOf(latencies, count * 2);
+                    }
+                    latencies[count++] = System.nanoTime() - start;
+                }
+                return Arrays.copyOf(latencies, count);
+            }));
+        }
+
+        long[] all = new long[0];
+        for (Future<long[]> result : results) {
+            long[] latencies = result.get();
+            int offset = all.length;
+            all = Arrays.copyOf(all, offset + latencies.length);
+            System.arraycopy(latencies, 0, all, offset, latencies.length);
+        }
+        clients.shutdown();
+
+        if (print && all.length > 0) {
+            Arrays.sort(all);
+            System.out.printf("%-8s: %8.0f req/s  p50 %6.1f ms  p99 %7.1f ms  max %7.1f ms  errors %d%n",
+                    name, all.length / (double) duration.toSeconds(),
+                    all[all.length / 2] / 1e6, all[(int) (all.length * 0.99)] / 1e6, all[all.length - 1] / 1e6,
+                    errors.get());
+        }
+    }
+
+    private static void populate(EntityManagerFactory emf) {
+        try (EntityManager em = emf.createEntityManager()) {
+            em.getTransaction().begin();
+            Guide guide = new Guide();
+            guide.setName("Load Guide");
+            em.persist(guide);
+            Category[] categories = Category.values();
+            for (int i = 0; i < TRIPS; i++) {
+                Trip trip = new Trip();
+                trip.setName("Trip " + i);
+                trip.setCategory(categories[i % categories.length]);
+                trip.setStartTime(LocalTime.of(8, 0));
+                trip.setEndTime(LocalTime.of(16, 0));
+                trip.setLatitude(55.6);
+                trip.setLongitude(12.5);
+                trip.setPrice(100 + i);
+                trip.setGuide(guide);
+                em.persist(trip);
+            }
+            em.getTransaction().commit();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package app.benchmark;
+
+import app.config.PackingClientConfig;
+import app.services.PackingService;
+import app.stub.LatencyDistribution;
+import app.stub.PackingApiStub;
+import app.utils.Metrics;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Load test of the real PackingService client path (HttpClient, bulkhead, circuit breaker, gzip, parsing)
+ * against the local packing API stub with realistic latency and faults.
+ * Every call asks for a new category, so the cache never answers and each call reaches the stub.
+ * Not a JUnit test - run main() from the IDE or with exec:java on the test classpath.
+ */
+public class PackingClientLoadBenchmark {
+
+    private static final int CALLS = 5_000;
+    private static final int CONCURRENCY = 32;
+
+    public static void main(String[] args) throws Exception {
+        try (PackingApiStub stub = new PackingApiStub()
+                .latency(LatencyDistribution.logNormal(40, 0.7))
+                .errorRate(0.01)
+                .resetRate(0.005)
+                .slowBodyRate(0.01)
+                .start(0);
+             PackingService packingService = new PackingService(PackingClientConfig.builder()
+                     .baseUrl(stub.baseUrl())
+                     .maxConcurrentCalls(CONCURRENCY)
+                     .build())) {
+
+            long[] latencies = new long[CALLS];
+            Map<String, LongAdder> failures = new ConcurrentHashMap<>();
+            Semaphore inFlight = new Semaphore(CONCURRENCY);
+            CompletableFuture<?>[] calls = new CompletableFuture<?>[CALLS];
+
+            long start = System.nanoTime();
+            for (int i = 0; i < CALLS; i++) {
+                inFlight.acquire();
+                int call = i;
+                long callStart = System.nanoTime();
+                calls[i] = packingService.getPackingItemsAsync("load-" + i)
+                        .whenComplete((packing, error) -> {
+                            latencies[call] = System.nanoTime() - callStart;
+                            if (error != null) {
+                                Throwable cause = error.getCause() != null ? error.getCause() : error;
+                                failures.computeIfAbsent(cause.getClass().getSimpleName(), k -> new LongAdder()).increment();
+                            }
+                            inFlight.release();
+                        });
+            }
+            CompletableFuture.allOf(calls).exceptionally(error -> null).join();
+            long elapsed = System.nanoTime() - start;
+
+            Arrays.sort(latencies);
+            System.out.printf("%d calls, concurrency %d: %.0f calls/s%n", CALLS, CONCURRENCY, CALLS / (elapsed / 1e9));
+            System.out.printf("latency ms  p50 %.1f  p90 %.1f  p99 %.1f  max %.1f%n",
+                    percentileMillis(latencies, 0.50), percentileMillis(latencies, 0.90),
+                    percentileMillis(latencies, 0.99), latencies[CALLS - 1] / 1e6);
+            System.out.println("failures: " + failures);
+            System.out.println("stub hits: " + stub.hits() + ", circuit: " + packingService.getCircuitState());
+            System.out.println("metrics: " + Metrics.snapshot());
+        }
+    }
+
+    private static double percentileMillis(long[] sorted, double percentile) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1)] / 1e6;
+    }
+}
@@ -0,0 +1,78 @@
+package app.benchmark;
+
+import app.dtos.PackingResponseDTO;
+import app.utils.JsonCodec;
+
+import java.io.ByteArrayInputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Callable;
+
+/**
+ * Measures bytes allocated per parsed packing list for the three ways PackingService can read a body:
+ * the old String copy + readValue(String), readValue(InputStream), and the stream reader that skips buyingOptions.
+ * Not a JUnit test - run main() from the IDE or with exec:java on the test classpath.
+ */
+public class PackingParseAllocationBenchmark {
+
+    private static final int ITEMS = 40;
+    private static final int BUYING_OPTIONS = 3;
+    private static final int ROUNDS = 20_000;
+
+    public static void main(String[] args) throws Exception {
+        byte[] body = createPayload().getBytes(StandardCharsets.UTF_8);
+        System.out.printf("Payload: %d bytes, %d items%n", body.length, ITEMS);
+
+        measure("String + readValue(String)  ", () ->
+                JsonCodec.PACKING_RESPONSE_READER.readValue(new String(body, StandardCharsets.UTF_8)));
+        measure("readValue(InputStream)      ", () ->
+                JsonCodec.PACKING_RESPONSE_READER.readValue(new ByteArrayInputStream(body)));
+        measure("stream, skip buyingOptions  ", () ->
+                JsonCodec.PACKING_RESPONSE_LEAN_READER.readValue(new ByteArrayInputStream(body)));
+    }
+
+    private static void measure(String name, Callable<PackingResponseDTO> parse) throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long sink = 0;
+        for (int i = 0; i < ROUNDS; i++) { // warm up
+            sink += parse.call().getItems().size();
+        }
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            sink += parse.call().getItems().size();
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        System.out.printf("%s: %8d bytes/call, %6.1f us/call (%d)%n",
+                name, allocated / ROUNDS, elapsed / 1_000.0 / ROUNDS, sink % 10);
+    }
+
+    private static String createPayload() {
+        StringBuilder json = new StringBuilder("{\"items\":[");
+        for (int i = 0; i < ITEMS; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"name\":\"Item ").append(i).append("\",")
+                    .append("\"weightInGrams\":").append(100 + i).append(',')
+                    .append("\"quantity\":").append(1 + i % 3).append(',')
+                    .append("\"description\":\"A useful thing to bring on the trip, number ").append(i).append("\",")
+                    .append("\"category\":\"beach\",")
+                    .append("\"createdAt\":\"2024-10-30T17:44:58.547Z\",")
+                    .append("\"updatedAt\":\"2024-10-30T17:44:58.547Z\",")
+                    .append("\"buyingOptions\":[");
+            for (int j = 0; j < BUYING_OPTIONS; j++) {
+                if (j > 0) {
+                    json.append(',');
+                }
+                json.append("{\"shopName\":\"Shop ").append(j).append("\",")
+                        .append("\"shopUrl\":\"https://shop").append(j).append(".example.com/item/").append(i).append("\",")
+                        .append("\"price\":").append(49.95 + j).append('}');
+            }
+            json.append("]}");
+        }
+        return json.append("]}").toString();
+    }
+}
@@ -0,0 +1,80 @@
+package app.benchmark;
+
+import app.dtos.TripDTO;
+import app.enums.Category;
+import app.utils.JsonCodec;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Serialisation benchmark for List<TripDTO>, the payload of GET /trips.
+ * Compares the old per-call mapper (what Utils.getObjectMapper() used to build), a shared plain
+ * mapper and the shared JsonCodec writer (Blackbird + cached writer), which is the one Javalin gets
+ * through CodecJsonMapper.
+ * Not a JUnit test - run main() from the IDE or with exec:java on the test classpath.
+ */
+public class TripSerializationBenchmark {
+
+    private static final int TRIPS = 500;
+    private static final int WARMUP_ROUNDS = 2_000;
+    private static final int MEASURED_ROUNDS = 5_000;
+
+    public static void main(String[] args) throws Exception {
+        List<TripDTO> trips = createTrips();
+        ObjectMapper sharedPlainMapper = newPlainMapper();
+        ObjectWriter codecWriter = JsonCodec.writerFor(new TypeReference<List<TripDTO>>() {}.getType());
+
+        run("new mapper per call", () -> newPlainMapper().writeValueAsBytes(trips));
+        run("shared plain mapper", () -> sharedPlainMapper.writeValueAsBytes(trips));
+        run("JsonCodec writer   ", () -> codecWriter.writeValueAsBytes(trips));
+    }
+
+    private static ObjectMapper newPlainMapper() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        objectMapper.registerModule(new JavaTimeModule());
+        return objectMapper;
+    }
+
+    private static void run(String name, Callable<byte[]> task) throws Exception {
+        long sink = 0;
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            sink += task.call().length;
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            sink += task.call().length;
+        }
+        long elapsed = System.nanoTime() - start;
+        double microsPerList = elapsed / 1_000.0 / MEASURED_ROUNDS;
+        System.out.printf("%s: %8.1f us per list of %d trips (%d)%n", name, microsPerList, TRIPS, sink % 10);
+    }
+
+    private static List<TripDTO> createTrips() {
+        Category[] categories = Category.values();
+        List<TripDTO> trips = new ArrayList<>(TRIPS);
+        for (int i = 0; i < TRIPS; i++) {
+            trips.add(TripDTO.builder()
+                    .id(i)
+                    .name("Trip " + i)
+                    .startTime(LocalTime.of(8, 0))
+                    .endTime(LocalTime.of(17, 30))
+                    .longitude(12.5 + i)
+                    .latitude(55.6 + i)
+                    .price(99.95 + i)
+                    .category(categories[i % categories.length])
+                    .guideId(i % 10)
+                    .guideName("Guide " + (i % 10))
+                    .build());
+        }
+        return trips;
+    }
+}
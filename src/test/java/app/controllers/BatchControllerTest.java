@@ -0,0 +1,112 @@
+package app.controllers;
+
+import app.config.RequestDeadlines;
+import app.exceptions.ApiException;
+import app.security.ClientIdentity;
+import io.javalin.Javalin;
+import io.restassured.http.ContentType;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.util.Map;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.*;
+
+// /batch against a small app with fake /trips routes, so no database is needed
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class BatchControllerTest {
+
+    private static final String BASE_URL = "http://localhost:7778/api/v1";
+    private Javalin app;
+
+    @BeforeAll
+    void startApp() {
+        BatchController batchController = new BatchController();
+        app = Javalin.create(config -> {
+                    config.router.contextPath = "/api/v1";
+                    RequestDeadlines.configure(config);
+                })
+                .post("/batch", batchController.executeBatch())
+                .get("/trips/echo", ctx -> ctx.json(Map.of(
+                        "authorization", String.valueOf(ctx.header("Authorization")),
+                        "batched", ClientIdentity.isBatchSubRequest(ctx))))
+                .get("/trips/slow", ctx -> {
+                    Thread.sleep(2_000);
+                    ctx.result("late");
+                })
+                .exception(ApiException.class, (e, ctx) -> ctx.status(e.getStatusCode())
+                        .json(Map.of("status", e.getStatusCode(), "msg", e.getMessage())));
+        RequestDeadlines.register(app);
+        app.start(7778);
+    }
+
+    @AfterAll
+    void stopApp() {
+        app.stop();
+    }
+
+    @Test
+    void rejectsMoreThanTwentySubRequests() {
+        StringBuilder body = new StringBuilder("[");
+        for (int i = 0; i <= BatchController.MAX_SUB_REQUESTS; i++) {
+            body.append(i == 0 ? "" : ",").append("{\"id\":\"").append(i).append("\",\"method\":\"GET\",\"path\":\"/trips/echo\"}");
+        }
+        given().baseUri(BASE_URL)
+                .contentType(ContentType.JSON)
+                .body(body.append("]").toString())
+                .when()
+                .post("/batch")
+                .then()
+                .statusCode(400)
+                .body("msg", containsString("between 1 and 20"));
+    }
+
+    @Test
+    void rejectsPathsOutsideTheWhitelist() {
+        given().baseUri(BASE_URL)
+                .contentType(ContentType.JSON)
+                .body("[{\"id\":\"a\",\"method\":\"GET\",\"path\":\"/trips/echo\"},"
+                        + "{\"id\":\"b\",\"method\":\"POST\",\"path\":\"/auth/login\"}]")
+                .when()
+                .post("/batch")
+                .then()
+                .statusCode(400)
+                .body("msg", containsString("/auth/login"));
+    }
+
+    @Test
+    void forwardsTheAuthorizationHeaderAndTheClientIdentity() {
+        given().baseUri(BASE_URL)
+                .contentType(ContentType.JSON)
+                .header("Authorization", "Bearer abc.def.ghi")
+                .body("[{\"id\":\"a\",\"method\":\"GET\",\"path\":\"/trips/echo\"}]")
+                .when()
+                .post("/batch")
+                .then()
+                .statusCode(200)
+                .body("[0].id", equalTo("a"))
+                .body("[0].status", equalTo(200))
+                .body("[0].body.authorization", equalTo("Bearer abc.def.ghi"))
+                .body("[0].body.batched", equalTo(true));
+    }
+
+    @Test
+    void mapsAFailedSubRequestToBadGateway() {
+        given().baseUri(BASE_URL)
+                .contentType(ContentType.JSON)
+                .header(RequestDeadlines.HEADER, "300") // the sub-request times out long before /trips/slow answers
+                .body("[{\"id\":\"ok\",\"method\":\"GET\",\"path\":\"/trips/echo\"},"
+                        + "{\"id\":\"slow\",\"method\":\"GET\",\"path\":\"/trips/slow\"}]")
+                .when()
+                .post("/batch")
+                .then()
+                .statusCode(200)
+                .body("[0].status", equalTo(200))
+                .body("[1].id", equalTo("slow"))
+                .body("[1].status", equalTo(502))
+                .body("[1].body", startsWith("Sub-request failed"));
+    }
+}
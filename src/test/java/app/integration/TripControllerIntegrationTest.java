@@ -210,4 +210,112 @@ public class TripControllerIntegrationTest {
                 .then()
                 .statusCode(HttpStatus.NO_CONTENT.getCode());
     }
+
+    @Test
+    @Order(7)
+    void getTripsByIds_keepsRequestOrderAndReportsMissingIds() {
+        int firstId = given()
+                .contentType(ContentType.JSON)
+                .when()
+                .get("/trips")
+                .then()
+                .statusCode(HttpStatus.OK.getCode())
+                .extract()
+                .path("[0].id");
+        int secondId = firstId + 1;
+
+        given()
+                .queryParam("ids", secondId + "," + firstId + ",999999")
+                .contentType(ContentType.JSON)
+                .when()
+                .get("/trips")
+                .then()
+                .statusCode(HttpStatus.OK.getCode())
+                .body("items.size()", equalTo(2))
+                .body("items[0].id", equalTo(secondId))
+                .body("items[1].id", equalTo(firstId))
+                .body("missingIds", contains(999999));
+    }
+
+    @Test
+    @Order(8)
+    void getPackingWeights_returnsPerTripAndTotalWeight() {
+        int firstId = given()
+                .contentType(ContentType.JSON)
+                .when()
+                .get("/trips")
+                .then()
+                .statusCode(HttpStatus.OK.getCode())
+                .extract()
+                .path("[0].id");
+
+        given()
+                .contentType(ContentType.JSON)
+                .body("{\"tripIds\": [" + firstId + ", " + (firstId + 1) + ", 999999]}")
+                .when()
+                .post("/trips/packing/weights")
+                .then()
+                .statusCode(HttpStatus.OK.getCode())
+                .body("weights." + firstId, equalTo(3300)) // matches MockPackingService
+                .body("totalWeight", equalTo(6600))
+                .body("missingIds", contains(999999));
+    }
+
+    @Test
+    @Order(9)
+    void getAllTripsWithFields_returnsOnlyTheRequestedKeys() {
+        given()
+                .queryParam("fields", "id,name")
+                .contentType(ContentType.JSON)
+                .when()
+                .get("/trips")
+                .then()
+                .statusCode(HttpStatus.OK.getCode())
+                .body("size()", greaterThan(0))
+                .body("[0].keySet()", containsInAnyOrder("id", "name"))
+                .body("name", everyItem(notNullValue()));
+    }
+
+    @Test
+    @Order(10)
+    void getGuideByIdWithFields_returnsOnlyTheRequestedKeys() {
+        int guideId = given()
+                .contentType(ContentType.JSON)
+                .when()
+                .get("/guides")
+                .then()
+                .statusCode(HttpStatus.OK.getCode())
+                .extract()
+                .path("[0].id");
+
+        given()
+                .queryParam("fields", "name,email")
+                .contentType(ContentType.JSON)
+                .when()
+                .get("/guides/{id}", guideId)
+                .then()
+                .statusCode(HttpStatus.OK.getCode())
+                .body("keySet()", containsInAnyOrder("name", "email"));
+    }
+
+    @Test
+    @Order(11)
+    void getWithUnknownField_returnsBadRequest() {
+        given()
+                .queryParam("fields", "id,password")
+                .contentType(ContentType.JSON)
+                .when()
+                .get("/trips")
+                .then()
+                .statusCode(HttpStatus.BAD_REQUEST.getCode())
+                .body("msg", containsString("Unknown field: password"));
+
+        given()
+                .queryParam("fields", "id,salary")
+                .contentType(ContentType.JSON)
+                .when()
+                .get("/guides")
+                .then()
+                .statusCode(HttpStatus.BAD_REQUEST.getCode());
+    }
 }
@@ -0,0 +1,61 @@
+package app.security;
+
+import app.exceptions.ApiException;
+import org.junit.jupiter.api.Test;
+import org.mindrot.jbcrypt.BCrypt;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHasherTest {
+
+    @Test
+    void readsTheCostFromTheHash() {
+        assertEquals(4, PasswordHasher.cost(BCrypt.hashpw("secret", BCrypt.gensalt(4))));
+        assertEquals(12, PasswordHasher.cost("$2a$12$abcdefghijklmnopqrstuuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ01"));
+    }
+
+    @Test
+    void unreadableHashHasNoCost() {
+        assertEquals(-1, PasswordHasher.cost("plain-text"));
+        assertEquals(-1, PasswordHasher.cost("$2a$"));
+    }
+
+    @Test
+    void rehashesOnlyWhenTheCostDiffers() {
+        String hash = BCrypt.hashpw("secret", BCrypt.gensalt(4));
+
+        assertFalse(PasswordHasher.needsRehash(hash, 4));
+        assertTrue(PasswordHasher.needsRehash(hash, 10));
+        assertTrue(PasswordHasher.needsRehash("plain-text", 10));
+    }
+
+    @Test
+    void answersTooManyRequestsWhenThePoolAndQueueAreFull() throws InterruptedException {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new ArrayBlockingQueue<>(1));
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            Runnable blocked = () -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            };
+            executor.execute(blocked); // busy thread
+            executor.execute(blocked); // full queue
+
+            ApiException rejected = assertThrows(ApiException.class, () -> PasswordHasher.run(() -> true, executor));
+            assertEquals(429, rejected.getStatusCode());
+            assertEquals("Too many requests, try again later", rejected.getMessage());
+        } finally {
+            release.countDown();
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        }
+    }
+}
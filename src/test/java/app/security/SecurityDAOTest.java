@@ -0,0 +1,87 @@
+package app.security;
+
+import app.config.HibernateConfig;
+import app.entities.User;
+import app.utils.Metrics;
+import jakarta.persistence.EntityExistsException;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SecurityDAOTest {
+
+    private static EntityManagerFactory emf;
+    private static SecurityDAO securityDAO;
+
+    @BeforeAll
+    static void setUpAll() {
+        emf = HibernateConfig.getEntityManagerFactoryForTest();
+        securityDAO = new SecurityDAO(emf);
+    }
+
+    @AfterAll
+    static void tearDownAll() {
+        HibernateConfig.setTest(false);
+    }
+
+    @BeforeEach
+    void deleteTestUsers() {
+        try (EntityManager em = emf.createEntityManager()) {
+            em.getTransaction().begin();
+            em.createQuery("DELETE FROM User u WHERE u.userName LIKE 'bulk-%' OR u.userName LIKE 'reg-%'").executeUpdate();
+            em.getTransaction().commit();
+        }
+    }
+
+    // No roles, so the test does not depend on the Role table; the hash is never checked here
+    private static User user(String username) {
+        User user = new User(username, new HashSet<>());
+        user.setPassword("$2a$10$not-a-real-hash");
+        return user;
+    }
+
+    @Test
+    void storesUsersAcrossChunks() {
+        List<User> users = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 250; i++) { // three chunks of at most 100
+            users.add(user("bulk-" + i));
+            names.add("bulk-" + i);
+        }
+
+        assertEquals(Set.of(), securityDAO.createUsers(users));
+        assertEquals(new HashSet<>(names), securityDAO.findExistingUsernames(names));
+    }
+
+    @Test
+    void chunkWithAnExistingNameIsRetriedUserByUser() {
+        securityDAO.createUsers(List.of(user("bulk-taken")));
+
+        Set<String> failed = securityDAO.createUsers(List.of(user("bulk-a"), user("bulk-taken"), user("bulk-b")));
+
+        assertEquals(Set.of("bulk-taken"), failed);
+        assertEquals(Set.of("bulk-a", "bulk-b", "bulk-taken"),
+                securityDAO.findExistingUsernames(List.of("bulk-a", "bulk-b", "bulk-taken", "bulk-c")));
+    }
+
+    @Test
+    void duplicateRegistrationIsRejectedWithoutHashing() {
+        securityDAO.createUser("reg-taken", "secret");
+        long hashesBefore = Metrics.count("bcrypt.hashes");
+
+        assertThrows(EntityExistsException.class, () -> securityDAO.createUser("reg-taken", "other"));
+
+        assertEquals(hashesBefore, Metrics.count("bcrypt.hashes"));
+        assertEquals(Set.of("reg-taken"), securityDAO.findExistingUsernames(List.of("reg-taken")));
+    }
+}
@@ -0,0 +1,113 @@
+package app.security;
+
+import app.entities.Role;
+import app.entities.User;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final UserCache cache = new UserCache(Duration.ofMinutes(5), 3, now::get);
+
+    private static User user(String username, String... roles) {
+        Set<Role> roleSet = new HashSet<>();
+        for (String role : roles) {
+            roleSet.add(new Role(role));
+        }
+        User user = new User(username, roleSet);
+        user.setPassword("$2a$10$hash-of-" + username);
+        return user;
+    }
+
+    private void put(User user) {
+        cache.put(user, cache.version(user.getUserName()));
+    }
+
+    @Test
+    void returnsACopyOfTheCachedUser() {
+        put(user("alice", "USER"));
+
+        User cached = cache.get("alice");
+        assertEquals("$2a$10$hash-of-alice", cached.getPassword());
+        assertEquals(Set.of("USER"), cached.getRolesAsStrings());
+        assertNotSame(cached, cache.get("alice"));
+    }
+
+    @Test
+    void entriesExpireAfterTheTtl() {
+        put(user("alice", "USER"));
+
+        now.addAndGet(TimeUnit.MINUTES.toNanos(5) - 1);
+        assertNotNull(cache.get("alice"));
+        now.addAndGet(1);
+        assertNull(cache.get("alice"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void invalidateDropsTheUser() {
+        put(user("alice", "USER"));
+        put(user("bob", "USER"));
+
+        cache.invalidate("alice");
+        assertNull(cache.get("alice"));
+        assertNotNull(cache.get("bob"));
+
+        cache.invalidateAll();
+        assertNull(cache.get("bob"));
+    }
+
+    @Test
+    void loadStartedBeforeAnInvalidateIsNotCached() {
+        long version = cache.version("alice");
+        User readBeforeTheChange = user("alice", "USER"); // roles as the database had them
+
+        cache.invalidate("alice"); // e.g. ADMIN was added meanwhile
+        cache.put(readBeforeTheChange, version);
+
+        assertNull(cache.get("alice"));
+    }
+
+    @Test
+    void loadStartedBeforeInvalidateAllIsNotCached() {
+        long version = cache.version("alice");
+        cache.invalidateAll();
+        cache.put(user("alice", "USER"), version);
+
+        assertNull(cache.get("alice"));
+    }
+
+    @Test
+    void makesRoomByDroppingExpiredEntriesFirst() {
+        put(user("alice"));
+        now.addAndGet(TimeUnit.MINUTES.toNanos(6));
+        put(user("bob"));
+        put(user("carol"));
+
+        put(user("dave")); // full: alice has expired and goes
+
+        assertEquals(3, cache.size());
+        assertNull(cache.get("alice"));
+        assertNotNull(cache.get("bob"));
+        assertNotNull(cache.get("carol"));
+        assertNotNull(cache.get("dave"));
+    }
+
+    @Test
+    void neverGrowsPastMaxEntries() {
+        for (int i = 0; i < 10; i++) {
+            put(user("user" + i));
+        }
+
+        assertEquals(3, cache.size());
+        assertNotNull(cache.get("user9"));
+    }
+}
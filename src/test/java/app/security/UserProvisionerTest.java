@@ -0,0 +1,137 @@
+package app.security;
+
+import app.dtos.BulkProvisionDTO;
+import app.dtos.UserProvisionDTO;
+import app.dtos.UserProvisionResultDTO;
+import app.entities.Role;
+import app.entities.User;
+import app.exceptions.ApiException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserProvisionerTest {
+
+    // In-memory stand-in for SecurityDAO: "taken" exists, names in failOnStore cannot be stored
+    private final Set<String> stored = new HashSet<>(Set.of("taken"));
+    private final Set<String> failOnStore = new HashSet<>();
+    private final List<String> handedToStore = new ArrayList<>();
+
+    private final ISecurityDAO securityDAO = new ISecurityDAO() {
+        @Override
+        public User getVerifiedUser(String username, String password) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public User createUser(String username, String password) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Role createRole(String role) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public User addUserRole(String username, String roleName) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Set<String> getRoleNames() {
+            return Set.of("User", "Admin");
+        }
+
+        @Override
+        public Set<String> findExistingUsernames(Collection<String> usernames) {
+            return usernames.stream().filter(stored::contains).collect(Collectors.toSet());
+        }
+
+        @Override
+        public Set<String> createUsers(List<User> users) {
+            users.forEach(user -> handedToStore.add(user.getUserName()));
+            Set<String> failed = users.stream().map(User::getUserName).filter(failOnStore::contains).collect(Collectors.toSet());
+            users.stream().map(User::getUserName).filter(name -> !failed.contains(name)).forEach(stored::add);
+            return failed;
+        }
+    };
+
+    private final UserProvisioner provisioner = new UserProvisioner(securityDAO);
+
+    private static UserProvisionDTO user(String username, String password, String... roles) {
+        return new UserProvisionDTO(username, password, roles.length == 0 ? null : Set.of(roles));
+    }
+
+    @Test
+    void invalidUsersAreReportedAndNeverHashed() {
+        BulkProvisionDTO response = provisioner.provision(List.of(
+                user(" ", "pw"),
+                user("a-name-that-is-longer-than-25", "pw"),
+                user("nopassword", ""),
+                user("badrole", "pw", "Owner")));
+
+        assertEquals(List.of("Username is required", "Username is longer than 25 characters",
+                "Password is required", "Unknown role: Owner"), messages(response));
+        assertTrue(response.getResults().stream().allMatch(result -> UserProvisioner.INVALID.equals(result.getStatus())));
+        assertEquals(4, response.getInvalid());
+        assertEquals(0, response.getFailed());
+        assertTrue(handedToStore.isEmpty());
+    }
+
+    @Test
+    void duplicateInTheRequestKeepsTheFirst() {
+        BulkProvisionDTO response = provisioner.provision(List.of(
+                user("alice", "pw1"),
+                user("alice", "pw2")));
+
+        assertEquals(List.of(UserProvisioner.CREATED, UserProvisioner.INVALID), statuses(response));
+        assertEquals("Duplicate username in request", response.getResults().get(1).getMsg());
+        assertEquals(List.of("alice"), handedToStore);
+    }
+
+    @Test
+    void countsEveryStatusSeparately() {
+        failOnStore.add("broken");
+
+        BulkProvisionDTO response = provisioner.provision(List.of(
+                user("bob", "pw", "Admin"),
+                user("taken", "pw"),
+                user("", "pw"),
+                user("broken", "pw")));
+
+        assertEquals(List.of(UserProvisioner.CREATED, UserProvisioner.EXISTS, UserProvisioner.INVALID, UserProvisioner.FAILED),
+                statuses(response));
+        assertEquals(1, response.getCreated());
+        assertEquals(1, response.getExists());
+        assertEquals(1, response.getInvalid());
+        assertEquals(1, response.getFailed());
+        assertFalse(handedToStore.contains("taken")); // existing names are not hashed either
+    }
+
+    @Test
+    void rejectsEmptyAndOversizedRequests() {
+        List<UserProvisionDTO> tooMany = new ArrayList<>();
+        for (int i = 0; i <= UserProvisioner.MAX_USERS; i++) {
+            tooMany.add(user("user" + i, "pw"));
+        }
+
+        assertEquals(400, assertThrows(ApiException.class, () -> provisioner.provision(List.of())).getStatusCode());
+        assertEquals(400, assertThrows(ApiException.class, () -> provisioner.provision(tooMany)).getStatusCode());
+    }
+
+    private static List<String> statuses(BulkProvisionDTO response) {
+        return response.getResults().stream().map(UserProvisionResultDTO::getStatus).toList();
+    }
+
+    private static List<String> messages(BulkProvisionDTO response) {
+        return response.getResults().stream().map(UserProvisionResultDTO::getMsg).toList();
+    }
+}
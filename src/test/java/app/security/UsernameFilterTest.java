@@ -0,0 +1,61 @@
+package app.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UsernameFilterTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+    private final UsernameFilter filter = new UsernameFilter(2);
+
+    private Supplier<List<String>> loading(String... usernames) {
+        return () -> {
+            loads.incrementAndGet();
+            return List.of(usernames);
+        };
+    }
+
+    @Test
+    void loadsOnceOnFirstUse() {
+        assertTrue(filter.mightExist("alice", loading("alice")));
+        assertFalse(filter.mightExist("bob", loading("alice")));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void addedNamesMightExist() {
+        filter.mightExist("alice", loading("alice"));
+
+        filter.add("bob");
+
+        assertTrue(filter.mightExist("bob", loading("alice")));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void isReloadedOnceItHoldsMoreNamesThanItWasSizedFor() {
+        filter.mightExist("alice", loading("alice")); // sized for 2
+        filter.add("bob");
+        filter.add("carol");
+
+        assertTrue(filter.mightExist("carol", loading("alice", "bob", "carol")));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void everyNameMightExistWhileTheFilterCannotBeLoaded() {
+        Supplier<List<String>> failing = () -> {
+            loads.incrementAndGet();
+            throw new IllegalStateException("database down");
+        };
+
+        assertTrue(filter.mightExist("alice", failing));
+        assertTrue(filter.mightExist("bob", failing));
+        assertEquals(2, loads.get()); // tried again on the next check
+    }
+}
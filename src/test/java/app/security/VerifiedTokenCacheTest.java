@@ -0,0 +1,62 @@
+package app.security;
+
+import dk.bugelhartmann.UserDTO;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VerifiedTokenCacheTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000_000_000L);
+    private final UserDTO user = new UserDTO("Gruppe18", Set.of("USER"));
+
+    private static String token(String payload) {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString("{\"alg\":\"HS256\"}".getBytes(StandardCharsets.UTF_8)) + "."
+                + encoder.encodeToString(payload.getBytes(StandardCharsets.UTF_8)) + ".signature";
+    }
+
+    private String tokenExpiringInSeconds(long seconds) {
+        return token("{\"sub\":\"Gruppe18\",\"exp\":" + (now.get() / 1000 + seconds) + "}");
+    }
+
+    @Test
+    void returnsTheUserUntilTheTokenExpires() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(10, now::get);
+        String token = tokenExpiringInSeconds(60);
+        assertNull(cache.get(token));
+
+        cache.put(token, user);
+        assertSame(user, cache.get(token).getUser());
+        assertEquals(Roles.USER.bit(), cache.get(token).getRoleMask());
+
+        now.addAndGet(61_000);
+        assertNull(cache.get(token));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void tokensWithoutExpiryAreNotCached() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(10, now::get);
+        String token = token("{\"sub\":\"Gruppe18\"}");
+
+        cache.put(token, user);
+
+        assertNull(cache.get(token));
+    }
+
+    @Test
+    void staysWithinItsBound() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(3, now::get);
+        for (int i = 1; i <= 10; i++) {
+            cache.put(tokenExpiringInSeconds(i * 60), user);
+        }
+
+        assertTrue(cache.size() <= 3);
+    }
+}
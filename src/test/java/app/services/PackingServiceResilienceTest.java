@@ -0,0 +1,227 @@
+package app.services;
+
+import app.config.PackingClientConfig;
+import app.exceptions.ApiException;
+import app.stub.LatencyDistribution;
+import app.stub.PackingApiStub;
+import app.utils.CircuitBreaker;
+import app.utils.Deadline;
+import app.utils.Metrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Exercises the real HttpClient path of PackingService against a local stub of the packing API.
+ */
+class PackingServiceResilienceTest {
+
+    private static final String BODY = "{\"items\":[{\"name\":\"Tent\",\"weightInGrams\":2500,\"quantity\":1}]}";
+
+    private final List<PackingService> services = new ArrayList<>();
+    private PackingApiStub stub;
+
+    @BeforeEach
+    void startStub() throws IOException {
+        stub = new PackingApiStub()
+                .payloads(category -> BODY)
+                .start(0);
+    }
+
+    @AfterEach
+    void stopStub() {
+        services.forEach(PackingService::close);
+        stub.close();
+    }
+
+    private PackingClientConfig.PackingClientConfigBuilder config() {
+        return PackingClientConfig.builder()
+                .baseUrl(stub.baseUrl());
+    }
+
+    private PackingService create(PackingClientConfig config) {
+        PackingService packingService = new PackingService(config);
+        services.add(packingService);
+        return packingService;
+    }
+
+    @Test
+    void returnsPackingItemsFromUpstream() {
+        PackingService packingService = create(config().build());
+
+        assertEquals(2500, packingService.getTotalPackingWeight("BEACH"));
+        assertEquals(1, stub.hits());
+    }
+
+    @Test
+    void requestTimeoutFailsTheCall() {
+        stub.latency(LatencyDistribution.fixed(2_000));
+        PackingService packingService = create(config()
+                .requestTimeout(Duration.ofMillis(200))
+                .build());
+
+        long start = System.nanoTime();
+        assertThrows(RuntimeException.class, () -> packingService.getPackingItems("beach"));
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 1_500);
+    }
+
+    @Test
+    void shortDeadlineEndsOnlyItsOwnWaitOnASharedLoad() {
+        stub.latency(LatencyDistribution.fixed(1_000));
+        PackingService packingService = create(config()
+                .circuitWindowSize(1)
+                .circuitMinimumCalls(1)
+                .build());
+
+        long start = System.nanoTime();
+        CompletableFuture<?> impatient = Deadline.callWith(Deadline.after(Duration.ofMillis(200)),
+                () -> packingService.getPackingItemsAsync("desert"));
+        CompletableFuture<Integer> patient = Deadline.callWith(Deadline.after(Duration.ofSeconds(5)),
+                () -> packingService.getTotalPackingWeightAsync("desert"));
+
+        CompletionException timedOut = assertThrows(CompletionException.class, impatient::join);
+        assertEquals(504, ((ApiException) timedOut.getCause()).getStatusCode());
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 900);
+
+        assertEquals(2500, patient.join());
+        assertEquals(1, stub.hits()); // one load, shared by both callers
+        assertEquals(CircuitBreaker.State.CLOSED, packingService.getCircuitState());
+    }
+
+    @Test
+    void tricklingBodyTimesOutAndFreesTheBulkheadSlot() {
+        stub.slowBodyRate(1.0).slowBodyChunkDelayMillis(3_000); // headers at once, the body ends 3 s later
+        PackingService packingService = create(config()
+                .requestTimeout(Duration.ofMillis(300))
+                .maxConcurrentCalls(1)
+                .build());
+        long timeoutsBefore = Metrics.count("packing.timeouts");
+
+        long start = System.nanoTime();
+        assertThrows(RuntimeException.class, () -> packingService.getPackingItems("valley"));
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 1_500);
+        assertEquals(timeoutsBefore + 1, Metrics.count("packing.timeouts"));
+
+        stub.slowBodyRate(0);
+        assertEquals(2500, packingService.getTotalPackingWeight("river")); // the only slot was given back
+    }
+
+    @Test
+    void connectionResetFailsTheCall() {
+        stub.resetRate(1.0);
+        PackingService packingService = create(config().build());
+
+        assertThrows(RuntimeException.class, () -> packingService.getPackingItems("mountain"));
+    }
+
+    @Test
+    void circuitOpensAfterRepeatedFailuresAndFailsFast() {
+        stub.errorRate(1.0);
+        PackingService packingService = create(config()
+                .circuitWindowSize(4)
+                .circuitMinimumCalls(4)
+                .circuitOpenDuration(Duration.ofMinutes(1))
+                .build());
+
+        for (int i = 0; i < 4; i++) {
+            assertThrows(RuntimeException.class, () -> packingService.getPackingItems("forest"));
+        }
+        assertEquals(CircuitBreaker.State.OPEN, packingService.getCircuitState());
+
+        ApiException rejected = assertThrows(ApiException.class, () -> packingService.getPackingItems("forest"));
+        assertEquals(503, rejected.getStatusCode());
+        assertEquals(4, stub.hits()); // the rejected call never reached the upstream
+    }
+
+    @Test
+    void anotherInstanceDoesNotTakeOverTheGauges() {
+        stub.errorRate(1.0);
+        PackingService failing = create(config()
+                .circuitWindowSize(1)
+                .circuitMinimumCalls(1)
+                .circuitOpenDuration(Duration.ofMinutes(1))
+                .build());
+        assertThrows(RuntimeException.class, () -> failing.getPackingItems("jungle"));
+
+        create(config().build());
+
+        assertEquals(CircuitBreaker.State.OPEN.ordinal(), Metrics.snapshot().get("packing.circuit.state"));
+    }
+
+    @Test
+    void slowCallIsHedgedAndTheHedgeWins() {
+        stub.latency(LatencyDistribution.firstRequest(2_000, 0));
+        PackingService packingService = create(config()
+                .hedgingEnabled(true)
+                .hedgeDelayWithoutSamples(Duration.ofMillis(100))
+                .maxHedgeRatio(1.0)
+                .build());
+        long wonBefore = Metrics.count("packing.hedge.won");
+
+        long start = System.nanoTime();
+        assertEquals(2500, packingService.getTotalPackingWeight("snow"));
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 1_500);
+        assertEquals(2, stub.hits());
+        // the counter is bumped right after the result completes, on the hedge's thread
+        long deadline = System.nanoTime() + Duration.ofSeconds(1).toNanos();
+        while (Metrics.count("packing.hedge.won") == wonBefore && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertEquals(wonBefore + 1, Metrics.count("packing.hedge.won"));
+    }
+
+    @Test
+    void bulkheadRejectsCallsAboveTheLimit() {
+        stub.latency(LatencyDistribution.fixed(500));
+        PackingService packingService = create(config()
+                .maxConcurrentCalls(1)
+                .build());
+
+        CompletableFuture<?> first = packingService.getPackingItemsAsync("city");
+        CompletableFuture<?> second = packingService.getPackingItemsAsync("lake");
+
+        CompletionException rejected = assertThrows(CompletionException.class, second::join);
+        assertInstanceOf(ApiException.class, rejected.getCause());
+        assertNotNull(first.join());
+    }
+
+    @Test
+    void snapshotOnDiskIsServedWhenTheUpstreamIsDown(@TempDir Path dir) {
+        Path snapshot = dir.resolve("packing-snapshot.jsonl");
+        PackingService first = create(config().snapshotPath(snapshot).build());
+        assertEquals(2500, first.getTotalPackingWeight("sea"));
+        first.flushSnapshots(); // the snapshot is written on a background thread
+        assertTrue(Files.exists(snapshot));
+
+        stub.errorRate(1.0);
+        PackingService restarted = create(config().snapshotPath(snapshot).build());
+
+        assertEquals(2500, restarted.getTotalPackingWeight("sea"));
+    }
+
+    @Test
+    void snapshotTooOldToPreWarmIsStillTheFallbackWhenTheUpstreamFails(@TempDir Path dir) throws IOException {
+        // Saved in 1970: past MAX_STALE, so it is not put in the cache, only used when the call fails
+        Path snapshot = dir.resolve("packing-snapshot.jsonl");
+        Files.writeString(snapshot, "{\"category\":\"hills\",\"savedAt\":0,\"packing\":" + BODY + "}\n");
+        stub.errorRate(1.0);
+        PackingService packingService = create(config().snapshotPath(snapshot).build());
+        long fallbacksBefore = Metrics.count("packing.snapshot.fallback");
+
+        assertEquals(2500, packingService.getTotalPackingWeight("HILLS"));
+        assertEquals(1, stub.hits());
+        assertEquals(fallbacksBefore + 1, Metrics.count("packing.snapshot.fallback"));
+    }
+}
@@ -0,0 +1,51 @@
+package app.services;
+
+import app.exceptions.ApiException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TripServiceAsyncTest {
+
+    // One thread and no queue: once the thread is busy, every further task is rejected
+    private final ThreadPoolExecutor ioExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new SynchronousQueue<>());
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final TripService tripService = new TripService(null, new MockPackingService(), ioExecutor);
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        tripService.close();
+    }
+
+    @Test
+    void answersWithServiceUnavailableWhenThePoolIsSaturated() {
+        ioExecutor.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        long start = System.nanoTime();
+        CompletionException error = assertThrows(CompletionException.class,
+                () -> tripService.getByIdWithPackingAsync(1).join());
+        assertInstanceOf(ApiException.class, error.getCause());
+        assertEquals(503, ((ApiException) error.getCause()).getStatusCode());
+
+        assertThrows(CompletionException.class, () -> tripService.getTotalPackingWeightAsync(1).join());
+        assertThrows(CompletionException.class, () -> tripService.getPackingWeightsAsync(List.of(1, 2)).join());
+
+        // Rejected at once, not after waiting for the busy thread
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+    }
+}
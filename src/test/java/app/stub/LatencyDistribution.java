@@ -0,0 +1,35 @@
+package app.stub;
+
+import java.util.Random;
+
+/**
+ * Delay in millis before the packing API stub answers request number hit (starting at 1).
+ */
+@FunctionalInterface
+public interface LatencyDistribution {
+
+    long nextMillis(int hit, Random random);
+
+    static LatencyDistribution fixed(long millis) {
+        return (hit, random) -> millis;
+    }
+
+    static LatencyDistribution uniform(long minMillis, long maxMillis) {
+        return (hit, random) -> minMillis + (long) (random.nextDouble() * (maxMillis - minMillis));
+    }
+
+    // Long right tail like real network calls: median medianMillis, spread sigma (0.5-1 is typical)
+    static LatencyDistribution logNormal(double medianMillis, double sigma) {
+        return (hit, random) -> Math.round(medianMillis * Math.exp(sigma * random.nextGaussian()));
+    }
+
+    // Mostly fast, with slowProbability of calls taking slowMillis
+    static LatencyDistribution bimodal(long fastMillis, long slowMillis, double slowProbability) {
+        return (hit, random) -> random.nextDouble() < slowProbability ? slowMillis : fastMillis;
+    }
+
+    // Only the first request is slow, handy for hedging tests
+    static LatencyDistribution firstRequest(long slowMillis, long otherMillis) {
+        return (hit, random) -> hit == 1 ? slowMillis : otherMillis;
+    }
+}
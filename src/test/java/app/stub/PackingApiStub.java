@@ -0,0 +1,216 @@
+package app.stub;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Local stand-in for the packing API (GET /packinglist/{category}), so the real HttpClient path of
+ * PackingService can be tested and load tested offline.
+ * Every category gets a generated, stable payload shaped like the real one (items with buyingOptions).
+ * Faults are drawn per request:
+ * - latency from a LatencyDistribution
+ * - errorRate: answer with errorStatus instead of the list
+ * - resetRate: close the connection without answering
+ * - slowBodyRate: send the body in small chunks with slowBodyChunkDelayMillis between them
+ * The settings can be changed while the stub runs.
+ *
+ * Embedded: new PackingApiStub().start(0) and point PackingClientConfig.baseUrl at baseUrl().
+ * Standalone: run main() (port 7071 by default) and start the app with PACKING_API_URL=http://localhost:7071/packinglist/
+ */
+public class PackingApiStub implements AutoCloseable {
+
+    private static final int SLOW_BODY_CHUNK_SIZE = 256;
+
+    private final AtomicInteger hits = new AtomicInteger();
+    private final Map<String, byte[]> payloads = new ConcurrentHashMap<>();
+    private HttpServer server;
+    private ExecutorService executor;
+
+    private volatile LatencyDistribution latency = LatencyDistribution.fixed(0);
+    private volatile double errorRate;
+    private volatile int errorStatus = 500;
+    private volatile double resetRate;
+    private volatile double slowBodyRate;
+    private volatile long slowBodyChunkDelayMillis = 50;
+    private volatile Function<String, String> payloadFactory = PackingApiStub::generatePayload;
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 7071;
+        PackingApiStub stub = new PackingApiStub()
+                .latency(LatencyDistribution.logNormal(80, 0.6))
+                .errorRate(0.01)
+                .resetRate(0.005)
+                .slowBodyRate(0.01)
+                .start(port);
+        System.out.println("Packing API stub listening on " + stub.baseUrl());
+    }
+
+    public PackingApiStub start(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.createContext("/packinglist/", this::handle);
+        server.start();
+        return this;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public String baseUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + "/packinglist/";
+    }
+
+    public int hits() {
+        return hits.get();
+    }
+
+    public PackingApiStub latency(LatencyDistribution latency) {
+        this.latency = latency;
+        return this;
+    }
+
+    public PackingApiStub errorRate(double errorRate) {
+        this.errorRate = errorRate;
+        return this;
+    }
+
+    public PackingApiStub errorStatus(int errorStatus) {
+        this.errorStatus = errorStatus;
+        return this;
+    }
+
+    public PackingApiStub resetRate(double resetRate) {
+        this.resetRate = resetRate;
+        return this;
+    }
+
+    public PackingApiStub slowBodyRate(double slowBodyRate) {
+        this.slowBodyRate = slowBodyRate;
+        return this;
+    }
+
+    public PackingApiStub slowBodyChunkDelayMillis(long slowBodyChunkDelayMillis) {
+        this.slowBodyChunkDelayMillis = slowBodyChunkDelayMillis;
+        return this;
+    }
+
+    // Replaces the generated payloads, e.g. with a fixed body for exact assertions
+    public PackingApiStub payloads(Function<String, String> payloadFactory) {
+        this.payloadFactory = payloadFactory;
+        payloads.clear();
+        return this;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        int hit = hits.incrementAndGet();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        try (exchange) {
+            sleep(latency.nextMillis(hit, random));
+
+            if (random.nextDouble() < resetRate) {
+                return; // closing without a response drops the connection
+            }
+            if (random.nextDouble() < errorRate) {
+                byte[] error = ("{\"status\":" + errorStatus + ",\"msg\":\"Injected error\"}").getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(errorStatus, error.length);
+                exchange.getResponseBody().write(error);
+                return;
+            }
+
+            String category = exchange.getRequestURI().getPath().substring("/packinglist/".length()).toLowerCase();
+            byte[] body = payloads.computeIfAbsent(category, c -> payloadFactory.apply(c).getBytes(StandardCharsets.UTF_8));
+            String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+                body = gzip(body);
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            }
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+
+            if (random.nextDouble() < slowBodyRate) {
+                exchange.sendResponseHeaders(200, 0); // chunked
+                OutputStream out = exchange.getResponseBody();
+                for (int offset = 0; offset < body.length; offset += SLOW_BODY_CHUNK_SIZE) {
+                    out.write(body, offset, Math.min(SLOW_BODY_CHUNK_SIZE, body.length - offset));
+                    out.flush();
+                    sleep(slowBodyChunkDelayMillis);
+                }
+            } else {
+                exchange.sendResponseHeaders(200, body.length);
+                exchange.getResponseBody().write(body);
+            }
+        }
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.length / 4);
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    // Same category -> same items, between 8 and 40 of them with 0-3 buying options each
+    static String generatePayload(String category) {
+        Random random = new Random(category.hashCode());
+        int items = 8 + random.nextInt(33);
+        StringBuilder json = new StringBuilder("{\"items\":[");
+        for (int i = 0; i < items; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"name\":\"").append(category).append(" item ").append(i).append("\",")
+                    .append("\"weightInGrams\":").append(50 + random.nextInt(3_000)).append(',')
+                    .append("\"quantity\":").append(1 + random.nextInt(3)).append(',')
+                    .append("\"description\":\"Something to bring on a ").append(category).append(" trip\",")
+                    .append("\"category\":\"").append(category).append("\",")
+                    .append("\"createdAt\":\"2024-10-30T17:44:58.547Z\",")
+                    .append("\"updatedAt\":\"2024-10-30T17:44:58.547Z\",")
+                    .append("\"buyingOptions\":[");
+            int options = random.nextInt(4);
+            for (int j = 0; j < options; j++) {
+                if (j > 0) {
+                    json.append(',');
+                }
+                json.append("{\"shopName\":\"Shop ").append(j).append("\",")
+                        .append("\"shopUrl\":\"https://shop").append(j).append(".example.com/").append(category).append('/').append(i).append("\",")
+                        .append("\"price\":").append(10 + random.nextInt(500)).append(".95}");
+            }
+            json.append("]}");
+        }
+        return json.append("]}").toString();
+    }
+}
@@ -0,0 +1,109 @@
+package app.utils;
+
+import app.utils.AdaptiveConcurrencyLimiter.Priority;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(100);
+
+    @Test
+    void shedsLowPriorityFirst() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 100);
+        for (int i = 0; i < 7; i++) {
+            assertTrue(limiter.tryAcquire(Priority.LOW));
+        }
+        assertFalse(limiter.tryAcquire(Priority.LOW));
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(limiter.tryAcquire(Priority.NORMAL));
+        }
+        assertFalse(limiter.tryAcquire(Priority.NORMAL));
+
+        assertTrue(limiter.tryAcquire(Priority.CRITICAL));
+        assertTrue(limiter.tryAcquire(Priority.CRITICAL));
+        assertFalse(limiter.tryAcquire(Priority.CRITICAL));
+    }
+
+    @Test
+    void growsWhileLatencyHoldsAndShrinksWhenItRises() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 100);
+        fill(limiter);
+        for (int i = 0; i < 50; i++) {
+            limiter.release(Priority.NORMAL, FAST, false);
+            assertTrue(limiter.tryAcquire(Priority.NORMAL));
+        }
+        int grown = limiter.getLimit();
+        assertTrue(grown > 10, "limit: " + grown);
+
+        fill(limiter);
+        for (int i = 0; i < 50; i++) {
+            limiter.release(Priority.NORMAL, SLOW, false);
+            limiter.tryAcquire(Priority.NORMAL);
+        }
+        assertTrue(limiter.getLimit() < grown, "limit: " + limiter.getLimit());
+    }
+
+    @Test
+    void backsOffOnTimeouts() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 5, 100);
+        for (int i = 0; i < 20; i++) {
+            limiter.tryAcquire(Priority.NORMAL);
+            limiter.release(Priority.NORMAL, SLOW, true);
+        }
+        assertEquals(5, limiter.getLimit());
+    }
+
+    @Test
+    void oneHugeSampleDoesNotHalveTheLimit() {
+        AdaptiveConcurrencyLimiter limiter = grownOnFastSamples();
+        int before = limiter.getLimit();
+
+        limiter.release(Priority.NORMAL, TimeUnit.SECONDS.toNanos(30), false); // e.g. one stuck request
+        limiter.tryAcquire(Priority.NORMAL);
+        for (int i = 0; i < 50; i++) {
+            limiter.release(Priority.NORMAL, FAST, false);
+            limiter.tryAcquire(Priority.NORMAL);
+        }
+
+        assertTrue(limiter.getLimit() > before * 0.9, "limit: " + limiter.getLimit() + ", was " + before);
+    }
+
+    @Test
+    void slowLowAndCriticalRequestsAreNotSampled() {
+        AdaptiveConcurrencyLimiter limiter = grownOnFastSamples();
+        int before = limiter.getLimit();
+
+        for (int i = 0; i < 50; i++) {
+            limiter.release(Priority.LOW, TimeUnit.SECONDS.toNanos(30), i % 2 == 0);
+            limiter.tryAcquire(Priority.LOW);
+            limiter.release(Priority.CRITICAL, SLOW, false);
+            limiter.tryAcquire(Priority.CRITICAL);
+        }
+
+        assertEquals(before, limiter.getLimit());
+    }
+
+    // A limiter at 40, fully used, with FAST as its healthy latency
+    private static AdaptiveConcurrencyLimiter grownOnFastSamples() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(40, 1, 40);
+        fill(limiter);
+        for (int i = 0; i < 20; i++) {
+            limiter.release(Priority.NORMAL, FAST, false);
+            limiter.tryAcquire(Priority.NORMAL);
+        }
+        assertEquals(40, limiter.getLimit());
+        return limiter;
+    }
+
+    private static void fill(AdaptiveConcurrencyLimiter limiter) {
+        while (limiter.tryAcquire(Priority.NORMAL)) {
+            // take every slot, so samples count toward the limit
+        }
+    }
+}
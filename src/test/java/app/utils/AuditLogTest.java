@@ -0,0 +1,39 @@
+package app.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuditLogTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void writesEveryEventAndRotatesBySize() throws IOException {
+        Path file = dir.resolve("audit.log");
+        try (AuditLog log = new AuditLog(file, 1_000, 2, 1024)) {
+            for (int i = 0; i < 50; i++) {
+                assertTrue(log.offer(AuditEvent.builder()
+                        .time(Instant.now())
+                        .type("change")
+                        .action("UPDATE")
+                        .entity("Trip")
+                        .entityId(String.valueOf(i))
+                        .build()));
+            }
+        }
+
+        assertTrue(Files.size(file) <= 1_000);
+        assertTrue(Files.exists(dir.resolve("audit.log.1")));
+        assertTrue(Files.exists(dir.resolve("audit.log.2")));
+        assertFalse(Files.exists(dir.resolve("audit.log.3")));
+        assertTrue(Files.readString(file).contains("\"entityId\":\"49\""));
+    }
+}
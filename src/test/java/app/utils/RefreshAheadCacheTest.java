@@ -0,0 +1,105 @@
+package app.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RefreshAheadCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+    // Every loader call gets a future the test completes by hand
+    private final List<CompletableFuture<String>> loads = new ArrayList<>();
+    private final RefreshAheadCache<String, String> cache = new RefreshAheadCache<>(key -> {
+        CompletableFuture<String> load = new CompletableFuture<>();
+        loads.add(load);
+        return load;
+    }, Duration.ofSeconds(10), Duration.ofSeconds(30), Duration.ofSeconds(100), Duration.ofSeconds(5), now::get);
+
+    @Test
+    void servesFromMemoryUntilRefreshAfterThenRefreshesInTheBackground() {
+        CompletableFuture<String> first = cache.get("beach");
+        loads.get(0).complete("v1");
+        assertEquals("v1", first.join());
+
+        advance(9);
+        assertEquals("v1", cache.get("beach").join());
+        assertEquals(1, loads.size());
+
+        advance(2);
+        assertEquals("v1", cache.get("beach").join()); // answered at once, reload started
+        assertEquals(2, loads.size());
+        loads.get(1).complete("v2");
+        assertEquals("v2", cache.get("beach").join());
+    }
+
+    @Test
+    void waitsForAReloadAfterTheTtl() {
+        cache.get("beach");
+        loads.get(0).complete("v1");
+
+        advance(31);
+        CompletableFuture<String> expired = cache.get("beach");
+        assertFalse(expired.isDone());
+        loads.get(1).complete("v2");
+        assertEquals("v2", expired.join());
+    }
+
+    @Test
+    void servesStaleValuesOnErrorUntilMaxStale() {
+        cache.get("beach");
+        loads.get(0).complete("v1");
+
+        advance(31);
+        CompletableFuture<String> stale = cache.get("beach");
+        loads.get(1).completeExceptionally(new RuntimeException("upstream down"));
+        assertEquals("v1", stale.join());
+
+        advance(70); // 101 s old, past maxStale
+        CompletableFuture<String> tooOld = cache.get("beach");
+        loads.get(2).completeExceptionally(new RuntimeException("upstream down"));
+        assertThrows(CompletionException.class, tooOld::join);
+    }
+
+    @Test
+    void concurrentLoadsShareOneLoaderCall() {
+        CompletableFuture<String> a = cache.get("beach");
+        CompletableFuture<String> b = cache.get("beach");
+        assertEquals(1, loads.size());
+
+        loads.get(0).complete("v1");
+        assertEquals("v1", a.join());
+        assertEquals("v1", b.join());
+    }
+
+    @Test
+    void backsOffAfterAFailedRefresh() {
+        cache.get("beach");
+        loads.get(0).complete("v1");
+
+        advance(11);
+        cache.get("beach");
+        loads.get(1).completeExceptionally(new RuntimeException("upstream down"));
+
+        advance(1);
+        for (int i = 0; i < 10; i++) {
+            assertEquals("v1", cache.get("beach").join());
+        }
+        assertEquals(2, loads.size());
+
+        advance(5); // backoff over
+        cache.get("beach");
+        assertEquals(3, loads.size());
+    }
+
+    private void advance(long seconds) {
+        now.addAndGet(TimeUnit.SECONDS.toNanos(seconds));
+    }
+}
@@ -0,0 +1,52 @@
+package app.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RingBufferTest {
+
+    private final RingBuffer<Integer> buffer = new RingBuffer<>(4);
+
+    @Test
+    void rejectsWhenFullAndAcceptsAgainAfterDraining() {
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(i));
+        }
+        assertFalse(buffer.offer(4));
+
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(2, buffer.drainTo(drained::add, 2));
+        assertTrue(buffer.offer(4));
+        assertTrue(buffer.offer(5));
+
+        buffer.drainTo(drained::add, 10);
+        assertEquals(List.of(0, 1, 2, 3, 4, 5), drained);
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    void keepsEveryValueFromConcurrentProducers() throws InterruptedException {
+        RingBuffer<Integer> large = new RingBuffer<>(1 << 14);
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < 4; p++) {
+            Thread producer = new Thread(() -> {
+                for (int i = 0; i < 2_000; i++) {
+                    assertTrue(large.offer(i));
+                }
+            });
+            producers.add(producer);
+            producer.start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        int[] sum = new int[1];
+        assertEquals(8_000, large.drainTo(value -> sum[0] += value, Integer.MAX_VALUE));
+        assertEquals(4 * (1_999 * 2_000 / 2), sum[0]);
+    }
+}
@@ -0,0 +1,49 @@
+package app.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketLimiterTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final TokenBucketLimiter limiter = new TokenBucketLimiter("test", 3, 1, now::get);
+
+    @Test
+    void allowsABurstThenRejectsUntilRefilled() {
+        assertEquals(2, limiter.tryAcquire("alice").getRemaining());
+        assertTrue(limiter.tryAcquire("alice").isAllowed());
+        assertTrue(limiter.tryAcquire("alice").isAllowed());
+
+        TokenBucketLimiter.Result rejected = limiter.tryAcquire("alice");
+        assertFalse(rejected.isAllowed());
+        assertEquals(1, rejected.getResetSeconds());
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertTrue(limiter.tryAcquire("alice").isAllowed());
+    }
+
+    @Test
+    void keysHaveTheirOwnBuckets() {
+        for (int i = 0; i < 3; i++) {
+            limiter.tryAcquire("alice");
+        }
+
+        assertFalse(limiter.tryAcquire("alice").isAllowed());
+        assertTrue(limiter.tryAcquire("bob").isAllowed());
+    }
+
+    @Test
+    void idleBucketsAreEvictedOnceFull() {
+        limiter.tryAcquire("alice");
+        limiter.evictIdle();
+        assertEquals(1, limiter.size());
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(3));
+        limiter.evictIdle();
+        assertEquals(0, limiter.size());
+    }
+}